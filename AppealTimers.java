@@ -0,0 +1,172 @@
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.emoji.Emoji;
+import net.dv8tion.jda.api.exceptions.ErrorHandler;
+import net.dv8tion.jda.api.exceptions.PermissionException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// one timer per ban ("open appeal") and per appeal ("close vote"), armed at their exact instants on the executor of the shard
+public final class AppealTimers{
+    static final int VOTE_DURATION = 86375; // [s] an appeal stays open
+    static final int MIN_VOTES = 5;
+    static final int RETRY_DELAY = 60; // [s] when the guild is not available yet
+    private static final ConcurrentHashMap<String, ScheduledFuture<?>> timers = new ConcurrentHashMap<>(); // "open/<guild>/<user>" or "close/<guild>/<message>"
+    private AppealTimers(){}
+    public static void start(){ // builds the due-time index from the journaled tables once, later changes arm their own timers
+        int count = 0;
+        for(String guildId : Storage.guildIds("banList")){
+            if(!Shards.isLocal(guildId)){ // another process runs the shard of this server
+                continue;
+            }
+            for(Storage.Ban ban : Storage.bans(guildId).rows()){
+                scheduleOpen(guildId, ban);
+                count++;
+            }
+        }
+        for(String guildId : Storage.guildIds("appeals")){
+            if(!Shards.isLocal(guildId)){
+                continue;
+            }
+            Guild guild = Shards.guild(guildId);
+            for(Storage.Appeal appeal : Storage.appeals(guildId).rows()){
+                if(guild != null){
+                    AppealVotes.reconcile(guild, Long.parseLong(appeal.messageId()));
+                }
+                scheduleClose(guildId, appeal);
+                count++;
+            }
+        }
+        Bot.logger.info("Scheduled {} appeal timers.", count);
+    }
+    public static void scheduleOpen(String guildId, Storage.Ban ban){
+        GuildSettings settings = GuildSettings.of(guildId);
+        if(settings == null || settings.appealTime <= 0){ // zero disables appeals
+            cancel("open/" + guildId + "/" + ban.userId());
+            return;
+        }
+        arm(guildId, "open/" + guildId + "/" + ban.userId(), ban.time() + settings.appealTime, () -> openAppeal(guildId, ban.userId()));
+    }
+    public static void scheduleClose(String guildId, Storage.Appeal appeal){
+        arm(guildId, "close/" + guildId + "/" + appeal.messageId(), appeal.closeTime(), () -> closeAppeal(guildId, appeal.messageId()));
+    }
+    public static void cancelOpen(String guildId, String userId){
+        cancel("open/" + guildId + "/" + userId);
+    }
+    public static void rescheduleGuild(String guildId){ // after /banappealset
+        for(Storage.Ban ban : Storage.bans(guildId).rows()){
+            scheduleOpen(guildId, ban);
+        }
+    }
+    private static void arm(String guildId, String key, int dueTime, Runnable task){
+        long delay = Math.max(0, dueTime - Bot.curtime());
+        AtomicReference<ScheduledFuture<?>> self = new AtomicReference<>();
+        timers.compute(key, (k, previous) -> { // scheduled and published under the lock of the key, a due timer waits for it below
+            if(previous != null){
+                previous.cancel(false);
+            }
+            ScheduledFuture<?> future = Shards.executor(guildId).schedule(() -> {
+                timers.computeIfPresent(key, (k2, current) -> (current == self.get() ? null : current)); // a re-arm by the task itself comes after this
+                task.run();
+            }, delay, TimeUnit.SECONDS);
+            self.set(future);
+            return future;
+        });
+    }
+    private static void cancel(String key){
+        ScheduledFuture<?> previous = timers.remove(key);
+        if(previous != null){
+            previous.cancel(false);
+        }
+    }
+    static void openAppeal(String guildId, String userId){
+        Guild guild = Shards.guild(guildId);
+        JournaledTable<Storage.Ban> bans = Storage.bans(guildId);
+        Storage.Ban ban = bans.get(userId);
+        if(ban == null){
+            return; // unbanned in the meantime
+        }
+        if(guild == null){
+            arm(guildId, "open/" + guildId + "/" + userId, Bot.curtime() + RETRY_DELAY, () -> openAppeal(guildId, userId));
+            return;
+        }
+        GuildSettings settings = GuildSettings.of(guild);
+        if(settings == null || settings.appealTime <= 0){ // disabled since the timer was armed, the ban stays in the list
+            return;
+        }
+        int appealTime = settings.appealTime;
+        ErrorHandler handler = new ErrorHandler().handle(ErrorResponse.UNKNOWN_BAN, (error) -> {
+            bans.remove(userId); // unbanned outside the bot, the entry is stale
+            Bot.logger.info("Removed stale ban list entry of user {} in server {}.", userId, guildId);
+        });
+        guild.retrieveBan(UserSnowflake.fromId(userId)).queue(
+            (success) -> {
+                TextChannel channel = Bot.getSpecialChannel(2, guild);
+                if(channel == null){ // no staff chat set yet
+                    arm(guildId, "open/" + guildId + "/" + userId, Bot.curtime() + RETRY_DELAY*60, () -> openAppeal(guildId, userId));
+                    return;
+                }
+                String message = String.format("Automatic Appeal\nUser <@%s> was banned %d days ago%s. Vote for appeal:", userId, appealTime/86400, (ban.reason().equals("") ? "" : " for "+ban.reason()));
+                MessageCreateAction action;
+                try{
+                    action = channel.sendMessage(message);
+                }catch(PermissionException e){ // no access to the staff chat, like a missing one
+                    Bot.logger.warn("Unable to open the appeal of user {} in server {}, retrying. {}", userId, guild.getName(), e.getMessage());
+                    arm(guildId, "open/" + guildId + "/" + userId, Bot.curtime() + RETRY_DELAY*60, () -> openAppeal(guildId, userId));
+                    return;
+                }
+                action.queue((m) -> {
+                    bans.remove(userId); // only once the appeal exists, a failed send keeps the ban for the retry
+                    AppealVotes.track(m.getIdLong()); // counted from here on by reaction events, including the bot's own
+                    m.addReaction(Emoji.fromUnicode("U+1F44D")).queue();
+                    m.addReaction(Emoji.fromUnicode("U+1F44E")).queue();
+                    Storage.Appeal appeal = new Storage.Appeal(m.getId(), Bot.curtime()+VOTE_DURATION, userId);
+                    Storage.appeals(guildId).put(appeal);
+                    scheduleClose(guildId, appeal);
+                    Bot.logger.event("appeal_open", "guild", guildId, "user", userId, "message", m.getId());
+                }, (failure) -> {
+                    Bot.logger.warn("Unable to open the appeal of user {} in server {}, retrying. {}", userId, guild.getName(), failure.toString());
+                    arm(guildId, "open/" + guildId + "/" + userId, Bot.curtime() + RETRY_DELAY, () -> openAppeal(guildId, userId));
+                });
+            },
+            handler
+        );
+    }
+    static void closeAppeal(String guildId, String messageId){
+        Guild guild = Shards.guild(guildId);
+        if(guild == null){
+            arm(guildId, "close/" + guildId + "/" + messageId, Bot.curtime() + RETRY_DELAY, () -> closeAppeal(guildId, messageId));
+            return;
+        }
+        Storage.Appeal appeal = Storage.appeals(guildId).remove(messageId);
+        if(appeal == null){
+            return;
+        }
+        int[] votes = AppealVotes.remove(Long.parseLong(messageId));
+        if(votes != null){
+            announceResult(guild, appeal, votes);
+        }else{
+            AppealVotes.fetch(guild, Long.parseLong(messageId), (fetched) -> announceResult(guild, appeal, fetched));
+        }
+    }
+    static void announceResult(Guild guild, Storage.Appeal appeal, int[] votes){
+        boolean isWon = (votes[0] > votes[1]);
+        if(votes[0]+votes[1] < MIN_VOTES){
+            Bot.specialMessage(2, guild, String.format("Not enough votes. \n<@%s> not unbanned.", appeal.userId()));
+            return;
+        }
+        Bot.specialMessage(2, guild, String.format("Appeal %ssuccessful.\n<@%s> %s unbanned.", (isWon ? "" : "un"), appeal.userId(), (isWon ? "has been" : "will not be")));
+        if(isWon){
+            guild.getJDA().retrieveUserById(appeal.userId()).queue(u -> Bot.unban(u, guild));
+            Bot.logger.event("appeal_won", "guild", guild.getId(), "user", appeal.userId(), "for", votes[0], "against", votes[1]);
+        }else{
+            Bot.logger.event("appeal_lost", "guild", guild.getId(), "user", appeal.userId(), "for", votes[0], "against", votes[1]);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageReaction;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.emoji.Emoji;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+// live thumbs-up/thumbs-down counts of open appeal messages, kept from reaction events
+public final class AppealVotes{
+    static final String UPVOTE = "\uD83D\uDC4D"; // thumbs-up emoji
+    static final String DOWNVOTE = "\uD83D\uDC4E"; // thumbs-down emoji
+    private static final ConcurrentHashMap<Long, AtomicIntegerArray> votes = new ConcurrentHashMap<>(); // message id -> {up, down}
+    private AppealVotes(){}
+    public static void track(long messageId){
+        votes.putIfAbsent(messageId, new AtomicIntegerArray(2));
+    }
+    public static int[] remove(long messageId){ // null if the message was never counted
+        AtomicIntegerArray counts = votes.remove(messageId);
+        return (counts == null ? null : new int[]{counts.get(0), counts.get(1)});
+    }
+    public static void onReaction(long messageId, Emoji emoji, int delta){
+        AtomicIntegerArray counts = votes.get(messageId);
+        if(counts == null){
+            return;
+        }
+        int index = voteIndex(emoji);
+        if(index >= 0){
+            counts.addAndGet(index, delta);
+        }
+    }
+    public static void onReactionsCleared(long messageId, Emoji emoji){ // emoji == null clears all of them
+        AtomicIntegerArray counts = votes.get(messageId);
+        if(counts == null){
+            return;
+        }
+        int index = (emoji == null ? -1 : voteIndex(emoji));
+        for(int i = 0; i < 2; i++){
+            if(emoji == null || i == index){
+                counts.set(i, 0);
+            }
+        }
+    }
+    public static void reconcile(Guild guild, long messageId){ // only after a restart, one fetch by id
+        track(messageId);
+        fetch(guild, messageId, (counts) -> {
+            AtomicIntegerArray tracked = votes.get(messageId);
+            if(tracked == null){
+                return; // closed while the fetch was running
+            }
+            tracked.set(0, counts[0]);
+            tracked.set(1, counts[1]);
+        });
+    }
+    public static void fetch(Guild guild, long messageId, Consumer<int[]> callback){
+        TextChannel channel = Bot.getSpecialChannel(2, guild);
+        if(channel == null){
+            callback.accept(new int[]{0, 0});
+            return;
+        }
+        channel.retrieveMessageById(messageId).queue(
+            (message) -> callback.accept(count(message)),
+            (failure) -> callback.accept(new int[]{0, 0}) // deleted appeal message, nobody voted
+        );
+    }
+    static int[] count(Message message){
+        int[] counts = {0, 0};
+        for(MessageReaction reaction : message.getReactions()){
+            int index = voteIndex(reaction.getEmoji());
+            if(index >= 0){
+                counts[index] = reaction.getCount();
+            }
+        }
+        return counts;
+    }
+    private static int voteIndex(Emoji emoji){
+        String formatted = emoji.getFormatted();
+        return (formatted.equals(UPVOTE) ? 0 : (formatted.equals(DOWNVOTE) ? 1 : -1));
+    }
+}
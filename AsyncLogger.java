@@ -0,0 +1,438 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+// logging off the calling thread: entries go into a bounded lock-free ring buffer and a single writer thread
+// formats them, writes data/logs/<start>.log, rotates it by size and day and gzips the old segments
+public final class AsyncLogger{
+    static final int CAPACITY = 8192; // entries, a power of two, when full new entries are dropped and counted
+    static final int LEVEL = level(System.getenv().getOrDefault("LOG_LEVEL", "info"));
+    static final boolean JSON = "json".equalsIgnoreCase(System.getenv("LOG_FORMAT")); // default: text lines, key=value for events
+    static final long MAX_SEGMENT_BYTES = Long.parseLong(System.getenv().getOrDefault("LOG_MAX_MB", "16"))*1048576;
+    static final int RETENTION_DAYS = Integer.parseInt(System.getenv().getOrDefault("LOG_RETENTION_DAYS", "30")); // for gzipped segments
+    static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(20); // writer sleep when the buffer is empty
+    static final int DEBUG = 0, INFO = 1, WARN = 2, ERROR = 3, RAW = 4, EVENT = 5; // RAW - preformatted lines from System.out
+    static final String[] LEVEL_NAMES = {"DEBUG", "INFO", "WARN", "ERROR", "OUT", "INFO"};
+    static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss:SSS"); // as in simplelogger.properties
+    static final DateTimeFormatter FILE_NAME = DateTimeFormatter.ofPattern("yyyyMMdd'_'HHmmss");
+    // ring buffer, a slot is free for position p when its sequence is p and readable when it is p+1
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+    private static final Entry[] slots = new Entry[CAPACITY];
+    private static final AtomicLong tail = new AtomicLong();
+    private static long head = 0; // writer thread only
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final Metrics.Counter droppedTotal = Metrics.counter("bot_log_dropped_total", "reason", "buffer_full");
+    private static volatile boolean running = false;
+    private static Thread writerThread;
+    // writer thread state
+    private static Path directory;
+    private static volatile Path segment; // read by the compression task
+    private static Writer out;
+    private static long segmentBytes;
+    private static long nextDay; // [ms] start of the next day, when the segment is rotated
+    private static long lastSecond = -1;
+    private static String lastSecondText = "";
+    private final String name;
+    private static final class Entry{
+        int level;
+        long time;
+        String thread;
+        String logger;
+        String message; // template with {} placeholders, or the event type
+        Object[] args; // placeholder values, or key, value pairs of an event
+    }
+    static{
+        for(int i = 0; i < CAPACITY; i++){
+            sequences.set(i, i);
+            slots[i] = new Entry();
+        }
+    }
+    private AsyncLogger(String name){
+        this.name = name;
+    }
+    public static AsyncLogger get(String name){
+        return new AsyncLogger(name);
+    }
+    public static synchronized void start(Path logDirectory){ // entries logged before this are kept in the buffer
+        if(running){
+            return;
+        }
+        directory = logDirectory;
+        running = true;
+        writerThread = new Thread(AsyncLogger::drainLoop, "log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(AsyncLogger::stop));
+    }
+    public static void stop(){ // drains the buffer and closes the segment
+        running = false;
+        LockSupport.unpark(writerThread);
+        try{
+            writerThread.join(2000);
+        }catch(InterruptedException ignored){}
+    }
+    public static PrintStream systemStream(){ // for System.setOut, every line becomes an entry, used by the slf4j simple logger of jda
+        return new PrintStream(new LineStream(), true, StandardCharsets.UTF_8);
+    }
+    public boolean isDebugEnabled(){
+        return LEVEL <= DEBUG;
+    }
+    public void debug(String message, Object... args){
+        log(DEBUG, message, args);
+    }
+    public void info(String message, Object... args){
+        log(INFO, message, args);
+    }
+    public void warn(String message, Object... args){
+        log(WARN, message, args);
+    }
+    public void error(String message, Object... args){ // a throwable as the last argument is written with its stack trace
+        log(ERROR, message, args);
+    }
+    public void event(String type, Object... keyValues){ // structured moderation event, e.g. event("ban", "guild", id, "user", id)
+        log(EVENT, type, keyValues);
+    }
+    private void log(int level, String message, Object[] args){
+        if(level < LEVEL && level != EVENT){
+            return;
+        }
+        offer(level, name, message, args);
+    }
+    private static void offer(int level, String logger, String message, Object[] args){
+        long position = tail.get();
+        while(true){
+            int index = (int) (position & (CAPACITY-1));
+            long difference = sequences.get(index) - position;
+            if(difference == 0){
+                if(tail.compareAndSet(position, position+1)){
+                    break;
+                }
+                position = tail.get();
+            }else if(difference < 0){ // full, the writer is behind by a whole buffer
+                dropped.incrementAndGet();
+                droppedTotal.increment();
+                return;
+            }else{
+                position = tail.get();
+            }
+        }
+        Entry entry = slots[(int) (position & (CAPACITY-1))];
+        entry.level = level;
+        entry.time = System.currentTimeMillis();
+        entry.thread = Thread.currentThread().getName();
+        entry.logger = logger;
+        entry.message = message;
+        entry.args = args;
+        sequences.set((int) (position & (CAPACITY-1)), position+1); // publishes the entry
+    }
+    private static void drainLoop(){
+        StringBuilder line = new StringBuilder(256);
+        open();
+        while(true){
+            boolean stopping = !running;
+            int drained = 0;
+            while(true){
+                int index = (int) (head & (CAPACITY-1));
+                if(sequences.get(index) != head+1){
+                    break;
+                }
+                Entry entry = slots[index];
+                long time = entry.time;
+                line.setLength(0);
+                try{
+                    format(line, entry);
+                }catch(Throwable e){ // e.g. a throwing toString() of an argument, the writer must survive it
+                    line.setLength(0);
+                    System.err.println("Log entry of " + entry.logger + " could not be formatted: " + entry.message + " " + e);
+                }
+                entry.args = null; // no references kept to logged objects
+                entry.message = null;
+                sequences.set(index, head+CAPACITY);
+                head++;
+                if(line.length() > 0){
+                    write(line, time);
+                }
+                drained++;
+            }
+            long lost = dropped.getAndSet(0);
+            if(lost > 0){
+                line.setLength(0);
+                long now = System.currentTimeMillis();
+                format(line, WARN, now, "log-writer", "AsyncLogger", String.format("%d log entries were dropped, the log buffer was full.", lost), null);
+                write(line, now);
+            }
+            if(drained == 0){
+                flush();
+                if(stopping){
+                    close();
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK);
+            }
+        }
+    }
+    private static void format(StringBuilder line, Entry entry){
+        if(entry.level == RAW){
+            if(JSON){
+                line.append("{\"ts\":\"").append(timestamp(entry.time)).append("\",\"level\":\"OUT\",\"msg\":");
+                appendJsonString(line, entry.message);
+                line.append('}');
+            }else{
+                line.append(entry.message);
+            }
+            return;
+        }
+        format(line, entry.level, entry.time, entry.thread, entry.logger, entry.message, entry.args);
+    }
+    private static void format(StringBuilder line, int level, long time, String thread, String logger, String message, Object[] args){
+        Throwable throwable = null;
+        if(JSON){
+            line.append("{\"ts\":\"").append(timestamp(time)).append("\",\"level\":\"").append(LEVEL_NAMES[level]).append("\",\"thread\":");
+            appendJsonString(line, thread);
+            line.append(",\"logger\":");
+            appendJsonString(line, logger);
+            if(level == EVENT){
+                line.append(",\"event\":");
+                appendJsonString(line, message);
+                for(int i = 0; args != null && i+1 < args.length; i += 2){
+                    line.append(',');
+                    appendJsonString(line, String.valueOf(args[i]));
+                    line.append(':');
+                    appendJsonString(line, String.valueOf(args[i+1]));
+                }
+            }else{
+                StringBuilder text = new StringBuilder(message.length() + 32);
+                throwable = substitute(text, message, args);
+                line.append(",\"msg\":");
+                appendJsonString(line, text);
+                if(throwable != null){
+                    line.append(",\"stack\":");
+                    appendJsonString(line, stackTrace(throwable));
+                    throwable = null;
+                }
+            }
+            line.append('}');
+        }else{
+            line.append(timestamp(time)).append(" [").append(thread).append("] ").append(LEVEL_NAMES[level]).append(' ').append(logger).append(" - ");
+            if(level == EVENT){
+                line.append("event=").append(message);
+                for(int i = 0; args != null && i+1 < args.length; i += 2){
+                    line.append(' ').append(args[i]).append('=');
+                    appendValue(line, String.valueOf(args[i+1]));
+                }
+            }else{
+                throwable = substitute(line, message, args);
+            }
+        }
+        if(throwable != null){
+            line.append(System.lineSeparator()).append(stackTrace(throwable).stripTrailing());
+        }
+    }
+    private static Throwable substitute(StringBuilder line, String message, Object[] args){ // fills {} placeholders, returns a left over throwable
+        int used = 0;
+        int length = message.length();
+        for(int i = 0; i < length; i++){
+            char c = message.charAt(i);
+            if(c == '{' && i+1 < length && message.charAt(i+1) == '}' && args != null && used < args.length){
+                line.append(args[used++]);
+                i++;
+            }else{
+                line.append(c);
+            }
+        }
+        return (args != null && used < args.length && args[args.length-1] instanceof Throwable throwable ? throwable : null);
+    }
+    private static void appendValue(StringBuilder line, String value){ // key=value, quoted when needed
+        boolean quote = value.isEmpty();
+        for(int i = 0; i < value.length() && !quote; i++){
+            char c = value.charAt(i);
+            quote = (c == ' ' || c == '"' || c == '=' || c == '\\' || c < 0x20);
+        }
+        if(!quote){
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            if(c == '"' || c == '\\'){
+                line.append('\\').append(c);
+            }else if(c == '\n'){
+                line.append("\\n");
+            }else if(c >= 0x20){
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+    private static void appendJsonString(StringBuilder line, CharSequence value){
+        line.append('"');
+        for(int i = 0; i < value.length(); i++){
+            char c = value.charAt(i);
+            switch(c){
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if(c < 0x20){
+                        line.append(String.format("\\u%04x", (int) c));
+                    }else{
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+    private static String stackTrace(Throwable throwable){
+        StringWriter writer = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+    private static String timestamp(long time){ // the seconds part is cached, most entries share it with the previous one
+        long second = time/1000;
+        if(second != lastSecond){
+            lastSecond = second;
+            String full = TIMESTAMP.format(Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()));
+            lastSecondText = full.substring(0, full.length()-3);
+        }
+        long millis = time%1000;
+        return lastSecondText + (millis < 10 ? "00" : (millis < 100 ? "0" : "")) + millis;
+    }
+    private static void write(StringBuilder line, long time){
+        if(time >= nextDay || segmentBytes >= MAX_SEGMENT_BYTES){
+            try{
+                rotate();
+            }catch(Throwable e){ // without a log file the line still reaches the console
+                nextDay = time + TimeUnit.MINUTES.toMillis(1); // not retried for every line
+                segmentBytes = 0;
+                System.err.println("Log segment could not be rotated: " + e);
+            }
+        }
+        line.append(System.lineSeparator());
+        try{
+            if(out != null){
+                out.append(line);
+            }else{
+                System.err.print(line); // no log file, the console still gets everything
+            }
+            segmentBytes += line.length();
+        }catch(IOException e){
+            System.err.print(line);
+        }
+    }
+    private static void flush(){
+        try{
+            if(out != null){
+                out.flush();
+            }
+        }catch(IOException ignored){}
+    }
+    private static void open(){
+        LocalDateTime now = LocalDateTime.now();
+        nextDay = now.toLocalDate().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        segmentBytes = 0;
+        try{
+            Files.createDirectories(directory);
+            segment = directory.resolve(now.format(FILE_NAME) + ".log");
+            for(int i = 1; Files.exists(segment) || Files.exists(segment.resolveSibling(segment.getFileName() + ".gz")); i++){ // two rotations within a second
+                segment = directory.resolve(now.format(FILE_NAME) + "-" + i + ".log");
+            }
+            out = new OutputStreamWriter(Files.newOutputStream(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), StandardCharsets.UTF_8);
+        }catch(IOException e){
+            out = null;
+            System.err.println("Logger unable to be created.");
+        }
+        try{
+            Bot.scheduler.execute(AsyncLogger::compressOldSegments); // also covers segments of earlier runs
+        }catch(RejectedExecutionException e){ // shutting down, compressed on the next start
+            System.err.println("Old log segments not compressed: " + e);
+        }
+    }
+    private static void rotate(){
+        close();
+        open();
+    }
+    private static void close(){
+        try{
+            if(out != null){
+                out.close();
+            }
+        }catch(IOException ignored){}
+        out = null;
+    }
+    private static synchronized void compressOldSegments(){
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(RETENTION_DAYS);
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.{log,gz}")){
+            for(Path i : stream){
+                if(i.equals(segment)){
+                    continue;
+                }
+                if(i.toString().endsWith(".gz")){
+                    if(Files.getLastModifiedTime(i).toMillis() < cutoff){
+                        Files.delete(i);
+                    }
+                    continue;
+                }
+                Path compressed = i.resolveSibling(i.getFileName() + ".gz");
+                try(OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(compressed))){
+                    Files.copy(i, gzip);
+                }
+                Files.setLastModifiedTime(compressed, Files.getLastModifiedTime(i));
+                Files.delete(i);
+            }
+        }catch(IOException e){
+            Bot.logger.warn("Unable to compress old log segments. {}", e.toString());
+        }
+    }
+    private static int level(String name){
+        return switch(name.toLowerCase()){
+            case "debug", "trace" -> DEBUG;
+            case "warn" -> WARN;
+            case "error" -> ERROR;
+            default -> INFO;
+        };
+    }
+    // System.out replacement, whole lines become RAW entries
+    private static final class LineStream extends OutputStream{
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        @Override
+        public synchronized void write(int b){
+            if(b == '\n'){
+                String text = line.toString(StandardCharsets.UTF_8);
+                line.reset();
+                offer(RAW, "System.out", (text.endsWith("\r") ? text.substring(0, text.length()-1) : text), null);
+            }else{
+                line.write(b);
+            }
+        }
+        @Override
+        public synchronized void write(byte[] bytes, int offset, int length){
+            for(int i = offset; i < offset+length; i++){
+                write(bytes[i]);
+            }
+        }
+    }
+}
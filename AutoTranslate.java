@@ -0,0 +1,76 @@
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.regex.Pattern;
+
+// auto-translate channels (/set t): messages that are not in english get a reply with their english translation
+// the language is identified in-process first, see LanguageDetector, only foreign messages cost a deepl call
+public final class AutoTranslate{
+    static final int CHANNEL = 5; // special channel index
+    static final String TARGET = "EN";
+    static final int MAX_LENGTH = 1000; // [chars] longer messages are not translated
+    static final Pattern NOISE = Pattern.compile("```.*?```|`[^`\\n]*`|https?://\\S+|<a?:\\w+:\\d+>|<(?:@[!&]?|#)\\d+>|:\\w+:", Pattern.DOTALL); // code, links, emojis and mentions
+    private static volatile LanguageDetector detector; // null - no message content intent or no language samples, auto-translation is off
+    private static final Metrics.Counter english = Metrics.counter("bot_auto_translate_total", "result", "english");
+    private static final Metrics.Counter unsure = Metrics.counter("bot_auto_translate_total", "result", "unsure");
+    private static final Metrics.Counter translated = Metrics.counter("bot_auto_translate_total", "result", "translated");
+    private static final Metrics.Counter failed = Metrics.counter("bot_auto_translate_total", "result", "failed");
+    private AutoTranslate(){}
+    public static void start(){
+        if(!Shards.MESSAGE_CONTENT_INTENT){
+            Bot.logger.info("MESSAGE_CONTENT is not set, auto-translation is disabled.");
+            return;
+        }
+        long start = System.nanoTime();
+        try{
+            detector = LanguageDetector.load(Paths.get(Bot.DATA, "languages"));
+            Bot.logger.info("Language detector trained on {} languages in {} ms.", detector.languages().size(), (System.nanoTime() - start)/1000000);
+        }catch(IOException e){
+            Bot.logger.warn("Unable to load the language samples, auto-translation is disabled. {}", e);
+        }
+    }
+    public static void onMessage(MessageReceivedEvent event){
+        LanguageDetector current = detector;
+        if(current == null || !event.isFromGuild() || event.getAuthor().isBot() || event.isWebhookMessage()){
+            return;
+        }
+        GuildSettings settings = GuildSettings.of(event.getGuild());
+        if(settings == null || !event.getChannel().getId().equals(settings.channel(CHANNEL))){
+            return;
+        }
+        Message message = event.getMessage();
+        if(message.getContentRaw().length() > MAX_LENGTH){
+            return;
+        }
+        String text = NOISE.matcher(message.getContentRaw()).replaceAll(" ").trim();
+        String language = current.detect(text); // microseconds, runs on the shard's thread
+        if(language == null){
+            unsure.increment();
+            return;
+        }
+        if(language.equals(TARGET)){
+            english.increment();
+            return;
+        }
+        String encoded = URLEncoder.encode(text, StandardCharsets.UTF_8);
+        // deepl detects the source itself, a close call between similar languages does not matter
+        TranslationCache.get(TranslationCache.key(text, "", TARGET), () -> Bot.deeplTranslate(encoded, "", TARGET)).whenComplete((translation, error) -> {
+            if(error != null){
+                failed.increment();
+                Bot.logger.warn("Unable to auto-translate a message in server {}. {}", event.getGuild().getName(), Http.rootCause(error));
+                return;
+            }
+            if(translation.equalsIgnoreCase(text)){ // names, numbers and the like
+                return;
+            }
+            translated.increment();
+            message.reply(String.format("*%s:* %s", language, translation)).mentionRepliedUser(false).setAllowedMentions(EnumSet.noneOf(Message.MentionType.class)).queue(null, // the translation echoes the user's text, @everyone must not ping
+                (failure) -> Bot.logger.warn("Unable to reply with a translation in server {}.", event.getGuild().getName()));
+        });
+    }
+}
@@ -0,0 +1,137 @@
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.exceptions.PermissionException;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// banned user ids per guild as primitive longs: an open-addressing set with linear probing, no boxing and O(1) lookups
+// rebuilt from data/banList and data/appeals at startup and completed with discord's ban list, which also has the bans made
+// outside the bot and those whose appeal was lost, kept in sync by ban and unban events and the bot's own commands
+public final class BanIndex{
+    static final long BAN_EVENT_DELAY = 2000; // [ms] a leave is answered after this, in case the ban event of the same user arrives after it
+    private static final int MIN_CAPACITY = 16;
+    private static final ConcurrentHashMap<String, BanIndex> guilds = new ConcurrentHashMap<>();
+    private long[] slots = new long[MIN_CAPACITY]; // 0 - empty, no snowflake is 0
+    private int size = 0;
+    private BanIndex(){}
+    public static void rebuild(String guildId){ // bans with an open appeal are no longer in the ban list, but are still bans
+        BanIndex index = new BanIndex();
+        for(Storage.Ban ban : Storage.bans(guildId).rows()){
+            index.add(parse(ban.userId()));
+        }
+        for(Storage.Appeal appeal : Storage.appeals(guildId).rows()){
+            index.add(parse(appeal.userId()));
+        }
+        guilds.put(guildId, index);
+    }
+    public static void seed(Guild guild){ // after rebuild, one paginated request of up to 1000 bans per page
+        String guildId = guild.getId();
+        try{
+            guild.retrieveBanList().forEachAsync(ban -> {
+                add(guildId, ban.getUser().getIdLong());
+                return true;
+            }, (error) -> Bot.logger.warn("Unable to read the ban list of server {}, only the bot's own bans are known. {}", guild.getName(), error.toString()));
+        }catch(PermissionException e){ // no ban members permission
+            Bot.logger.warn("Unable to read the ban list of server {}, only the bot's own bans are known. {}", guild.getName(), e.getMessage());
+        }
+    }
+    public static void add(String guildId, long userId){
+        guilds.computeIfAbsent(guildId, id -> new BanIndex()).add(userId);
+    }
+    public static void remove(String guildId, long userId){
+        BanIndex index = guilds.get(guildId);
+        if(index != null){
+            index.remove(userId);
+        }
+    }
+    public static boolean isBanned(String guildId, long userId){
+        BanIndex index = guilds.get(guildId);
+        return (index != null && index.contains(userId));
+    }
+    public static int count(String guildId){
+        BanIndex index = guilds.get(guildId);
+        return (index == null ? 0 : index.size());
+    }
+    public static long total(){
+        long total = 0;
+        for(BanIndex index : guilds.values()){
+            total += index.size();
+        }
+        return total;
+    }
+    synchronized boolean add(long key){
+        if(key == 0){
+            return false;
+        }
+        if((size + 1)*4 > slots.length*3){ // load factor 0.75
+            resize(slots.length*2);
+        }
+        int mask = slots.length - 1;
+        for(int i = slot(key, mask); ; i = (i + 1) & mask){
+            if(slots[i] == key){
+                return false;
+            }
+            if(slots[i] == 0){
+                slots[i] = key;
+                size++;
+                return true;
+            }
+        }
+    }
+    synchronized boolean contains(long key){
+        int mask = slots.length - 1;
+        for(int i = slot(key, mask); slots[i] != 0; i = (i + 1) & mask){
+            if(slots[i] == key){
+                return true;
+            }
+        }
+        return false;
+    }
+    synchronized boolean remove(long key){
+        int mask = slots.length - 1;
+        int i = slot(key, mask);
+        while(slots[i] != key){
+            if(slots[i] == 0){
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        for(int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask){ // backward shift, so no tombstones are needed
+            int home = slot(slots[j], mask);
+            if(((j - home) & mask) >= ((j - i) & mask)){ // the entry at j may move into the hole at i
+                slots[i] = slots[j];
+                i = j;
+            }
+        }
+        slots[i] = 0;
+        size--;
+        return true;
+    }
+    synchronized int size(){
+        return size;
+    }
+    private void resize(int capacity){
+        long[] old = slots;
+        slots = new long[capacity];
+        int mask = capacity - 1;
+        for(long key : old){
+            if(key != 0){
+                int i = slot(key, mask);
+                while(slots[i] != 0){
+                    i = (i + 1) & mask;
+                }
+                slots[i] = key;
+            }
+        }
+    }
+    private static int slot(long key, int mask){ // snowflakes differ mostly in their high bits, so they are mixed first
+        long hash = key*0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+    private static long parse(String userId){
+        try{
+            return Long.parseLong(userId.trim());
+        }catch(NumberFormatException e){
+            return 0;
+        }
+    }
+}
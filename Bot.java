@@ -1,72 +1,129 @@
 // todo: split into multiple files
 // todo: add the file to a proper package
 import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
-import net.dv8tion.jda.api.entities.emoji.Emoji;
+import net.dv8tion.jda.api.events.guild.GuildBanEvent;
 import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.events.guild.GuildUnbanEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRoleAddEvent;
 import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
-import net.dv8tion.jda.api.exceptions.ErrorHandler;
+import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
+import net.dv8tion.jda.api.events.message.react.MessageReactionRemoveAllEvent;
+import net.dv8tion.jda.api.events.message.react.MessageReactionRemoveEmojiEvent;
+import net.dv8tion.jda.api.events.message.react.MessageReactionRemoveEvent;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
 import net.dv8tion.jda.api.exceptions.HierarchyException;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.interactions.commands.Command;
 import net.dv8tion.jda.api.interactions.commands.DefaultMemberPermissions;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
-import net.dv8tion.jda.api.requests.ErrorResponse;
-import net.dv8tion.jda.api.utils.MemberCachePolicy;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.lang.management.ManagementFactory;
 import java.net.URLEncoder;
 import java.net.UnknownHostException;
-import java.nio.file.DirectoryStream;
+import java.nio.channels.UnresolvedAddressException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.time.LocalDateTime;
 
 import static java.time.temporal.ChronoField.*;
-import static net.dv8tion.jda.api.requests.GatewayIntent.*;
 
 public class Bot extends ListenerAdapter{
     static final int MESSAGE_DELETION_LENGTH = 168; // default message deletion length
     static final int STATUS_CHANGE_DURATION = 300; // time [s] between status changes
-    static Logger logger; // slf4j simple logger
-    static JDA jda;
-    static ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(32); // scheduler for scheduled events
+    static final String DATA = System.getProperty("bot.data", "data"); // data directory, overridable for benchmarks
+    static final int BOOTSTRAP_THREADS = 8; // parallel per-server file checks after the ready event
+    static final boolean CDS_TRAINING = Boolean.getBoolean("bot.cdsTraining"); // exit once started, see the appcds profile in pom.xml
+    static final Pattern CANONICAL_LINK = Pattern.compile("<link rel=\"canonical\" href=\"([^\"]+)\""); // article url in wikipedia html
+    static final AsyncLogger logger = AsyncLogger.get("Bot"); // asynchronous, jda's slf4j output joins it through System.out
+    static final CommandRegistry commands = buildCommands();
+    static ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4); // housekeeping, server timers run on their shard, see Shards
+    private static final AtomicBoolean started = new AtomicBoolean(false);
+    private static final AtomicBoolean bootstrapped = new AtomicBoolean(false);
+    private static final Set<Integer> bootstrappedShards = ConcurrentHashMap.newKeySet();
+    private static final AtomicLong readyMillis = new AtomicLong(); // [ms] after jvm start
+    private static final AtomicLong bootstrapMillis = new AtomicLong();
     public static void main(String[] args){
-        logger = LoggerFactory.getLogger(Bot.class); // this entire block is logger and logfile creation
-        try{
-            File file = new File(String.format("data/logs/%s.log", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd'_'HHmmss"))));
-            file.createNewFile();
-            PrintStream ps = new PrintStream(new FileOutputStream(file));
-            System.setOut(ps);
-            //System.setErr(ps);
-        }catch(Exception e){
-            System.out.println("Logger unable to be created.");
+        AsyncLogger.start(Paths.get(DATA, "logs"));
+        System.setOut(AsyncLogger.systemStream());
+        Shards.start(System.getenv("JAVABOT"), new TimedEventListener(new Bot())); // bot creation, one session or SHARDS shards
+        Storage.start();
+        TranslationCache.start();
+        RandomArticlePool.start();
+        AutoTranslate.start();
+        MemberCache.start();
+        Metrics.gauge("bot_scheduler_queue", () -> ((ScheduledThreadPoolExecutor) scheduler).getQueue().size());
+        Metrics.gauge("bot_shard_queue", Shards::queuedTasks);
+        Metrics.gauge("bot_shards_connected", Shards::connected);
+        Metrics.gauge("bot_rest_pool_queue", Shards::queuedRestRequests);
+        Metrics.gauge("bot_blocking_command_queue", commands::queuedBlocking);
+        Metrics.gauge("bot_heap_used_bytes", () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+        Metrics.gauge("bot_cached_members", MemberCache::cachedMembers);
+        Metrics.gauge("bot_outbound_queue", Outbox::queued);
+        Metrics.gauge("bot_ban_index_entries", BanIndex::total);
+        Metrics.gauge("bot_ready_millis", readyMillis::get);
+        Metrics.gauge("bot_bootstrap_millis", bootstrapMillis::get);
+        Metrics.gauge("bot_first_command_millis", commands::firstCommandMillis);
+        Metrics.start();
+    }
+    @Override
+    public void onReady(ReadyEvent event){ // startup continues here instead of after fixed delays, once per shard
+        int shardId = event.getJDA().getShardInfo().getShardId();
+        logger.info("Shard {} ready with {} servers {} ms after start.", shardId, event.getGuildTotalCount(), ManagementFactory.getRuntimeMXBean().getUptime());
+        if(started.compareAndSet(false, true)){
+            readyMillis.set(ManagementFactory.getRuntimeMXBean().getUptime());
+            if(!CDS_TRAINING){ // the training run must not touch the live registration
+                addCommands();
+            }
+            scheduler.execute(Bot::scheduledStatusChanger);
         }
-        jda = JDABuilder.createLight(System.getenv("JAVABOT")).addEventListeners(new Bot()).setActivity(Activity.playing("Loading...")).enableIntents(GUILD_MEMBERS).setMemberCachePolicy(MemberCachePolicy.ALL).build(); // bot creation
-        addCommands();
-        scheduler.schedule(Bot::scheduledStatusChanger, 3, TimeUnit.SECONDS); // 3 seconds, so it only executes after the main logic is loaded
-        scheduler.schedule(Bot::automaticAppealer, 10, TimeUnit.SECONDS);
+        bootstrapGuilds(event.getJDA().getGuilds()).whenComplete((result, error) -> {
+            bootstrappedShards.add(shardId);
+            if(bootstrappedShards.size() < Shards.localCount() || !bootstrapped.compareAndSet(false, true)){
+                return;
+            }
+            bootstrapMillis.set(ManagementFactory.getRuntimeMXBean().getUptime());
+            logger.info("Bootstrap finished. {} cached members in {} servers, policy {}.", MemberCache.cachedMembers(), MemberCache.guilds(), (MemberCache.isLean() ? "lean" : "all"));
+            if(CDS_TRAINING){ // before the appealer, a training run must not unban anyone
+                logger.info("Class data sharing training run finished.");
+                Shards.shutdown();
+                System.exit(0);
+            }
+            automaticAppealer(); // needs the ban lists and appeals of every shard opened by the bootstrap
+        });
+    }
+    public static CompletableFuture<Void> bootstrapGuilds(List<Guild> guilds){ // data file checks and storage migration, in parallel
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(BOOTSTRAP_THREADS);
+        CompletableFuture<?>[] tasks = guilds.stream().map(guild -> CompletableFuture.runAsync(() -> reloadFiles(guild), pool)).toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(tasks).whenComplete((result, error) -> {
+            pool.shutdown();
+            logger.info("Checked the data files of {} servers in {} ms.", guilds.size(), (System.nanoTime() - start)/1000000);
+        });
     }
     public static int curtime(){
         return (int) LocalDateTime.now().toEpochSecond(ZoneOffset.ofHours(1));
@@ -76,27 +133,61 @@ public class Bot extends ListenerAdapter{
         LocalDateTime newtime = time.plusDays(boolToInt(seconds < time.get(SECOND_OF_DAY))).plusSeconds(seconds - time.get(SECOND_OF_DAY));
         return (int) ((int) ((int) newtime.toEpochSecond(ZoneOffset.ofHours(1))) - curtime());
     }
-    public static void addCommands(){ // func for registering commands, self-explanatory
-        jda.updateCommands().addCommands(
-                Commands.slash("set", "Set specific channel types, for more information provide \"info\" as argument.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.MANAGE_CHANNEL)).addOption(OptionType.STRING, "type", "Type of channel to set.", true, true).addOption(OptionType.CHANNEL, "channel", "The channel to set.", true).setGuildOnly(true),
-                Commands.slash("ban", "Bans people. Automatic appeal in a set number of days.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.USER, "banned", "The user to ban.", true).addOption(OptionType.STRING, "reason", "Ban reason.", false).addOption(OptionType.INTEGER, "deletiontime", "The duration, for which the banned user's messages are to be deleted, in hours. 168 or less.", false).setGuildOnly(true),
-                Commands.slash("setverifyrole", "Set a role to be given for a specific time of server use.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.MESSAGE_MANAGE)).addOption(OptionType.INTEGER, "hours", "Number of hours. Set to zero to disable.", true).addOption(OptionType.ROLE, "role", "The role.", true),
-                Commands.slash("timeout", "Timeouts (mutes) people.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.KICK_MEMBERS)).addOption(OptionType.USER, "user", "The user to kick.", true).addOption(OptionType.STRING, "time", "Duration of the timeout.", true).setGuildOnly(true).addOption(OptionType.STRING, "reason", "Kick reason.", false).setGuildOnly(true),
-                Commands.slash("kick", "Kicks people.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.KICK_MEMBERS)).addOption(OptionType.USER, "kicked", "The user to kick.", true).addOption(OptionType.STRING, "reason", "Kick reason.", false).setGuildOnly(true),
-                Commands.slash("unban", "Unbans people.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.USER, "banned", "The user to unban.", true).setGuildOnly(true),
-                Commands.slash("banappealset", "Sets the number of days to count until appeal. Input zero to disable appeals.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.INTEGER, "days", "Number of days. Zero to disable. MAX = 366.", true).setGuildOnly(true),
-                Commands.slash("banmessageset", "Set whether the bot should announce bans in main chat (arg 1) or in the banned user's DMs (arg 2).").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.BOOLEAN, "main", "Announcing bans in main chat.", false).addOption(OptionType.BOOLEAN, "dm", "Announcing bans in DMs.", false).setGuildOnly(true),
-                Commands.slash("reload", "Reload file creation.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.MANAGE_SERVER, Permission.MANAGE_CHANNEL)).setGuildOnly(true),
-                Commands.slash("tr", "Translate.").addOption(OptionType.STRING, "text", "What to translate?", true).addOption(OptionType.STRING, "to", "To what language? Default is English", false).addOption(OptionType.STRING, "from", "From what language?", false).setGuildOnly(false),
-                Commands.slash("height", "Convert height from metric to American and back.").addOption(OptionType.STRING, "height", "Height. Give in m, cm or [ft]'[in].", false).setGuildOnly(false),
-                Commands.slash("roll", "Roll.").addOption(OptionType.STRING, "dice", "What dice to roll? Format xdy+zdt. Default: 1d6.", false).setGuildOnly(false),
-                Commands.slash("random", "Random Wikipedia article in any language.").addOption(OptionType.STRING, "language", "Default: English, provide a valid Wikipedia language code (e.g. German - de)", false).setGuildOnly(false),
-                Commands.slash("data", "Information about the bot.").setGuildOnly(false)
-        ).queue();
+    static CommandRegistry buildCommands(){ // every command with its handler, blocking ones do file i/o
+        return new CommandRegistry()
+                .register(Commands.slash("set", "Set specific channel types, for more information provide \"info\" as argument.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.MANAGE_CHANNEL)).addOption(OptionType.STRING, "type", "Type of channel to set.", true, true).addOption(OptionType.CHANNEL, "channel", "The channel to set.", true).setGuildOnly(true), true, Bot::setCommand)
+                .register(Commands.slash("ban", "Bans people. Automatic appeal in a set number of days.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.USER, "banned", "The user to ban.", true).addOption(OptionType.STRING, "reason", "Ban reason.", false).addOption(OptionType.INTEGER, "deletiontime", "The duration, for which the banned user's messages are to be deleted, in hours. 168 or less.", false).setGuildOnly(true), true, Bot::banCommand)
+                .register(Commands.slash("setverifyrole", "Set a role to be given for a specific time of server use.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.MESSAGE_MANAGE)).addOption(OptionType.INTEGER, "hours", "Number of hours. Set to zero to disable.", true).addOption(OptionType.ROLE, "role", "The role.", true), true, Bot::setVerifyRoleCommand)
+                .register(Commands.slash("timeout", "Timeouts (mutes) people.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.KICK_MEMBERS)).addOption(OptionType.USER, "user", "The user to kick.", true).addOption(OptionType.STRING, "time", "Duration of the timeout.", true).setGuildOnly(true).addOption(OptionType.STRING, "reason", "Kick reason.", false).setGuildOnly(true), false, Bot::timeoutCommand)
+                .register(Commands.slash("kick", "Kicks people.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.KICK_MEMBERS)).addOption(OptionType.USER, "kicked", "The user to kick.", true).addOption(OptionType.STRING, "reason", "Kick reason.", false).setGuildOnly(true), false, Bot::kickCommand)
+                .register(Commands.slash("unban", "Unbans people.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.USER, "banned", "The user to unban.", true).setGuildOnly(true), true, Bot::unbanCommand)
+                .register(Commands.slash("baninfo", "Shows whether a user is banned, when and why.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.USER, "user", "The user to look up.", true).setGuildOnly(true), false, Bot::banInfoCommand)
+                .register(Commands.slash("massban", "Bans many people at once, e.g. after a raid.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.STRING, "users", "User IDs or mentions, separated by spaces.", false).addOption(OptionType.INTEGER, "joined", "Also everyone who joined in the last N minutes.", false).addOption(OptionType.STRING, "reason", "Ban reason.", false).addOption(OptionType.INTEGER, "deletiontime", "The duration, for which the banned users' messages are to be deleted, in hours. 168 or less.", false).setGuildOnly(true), true, BulkModeration::massbanCommand)
+                .register(Commands.slash("masskick", "Kicks many people at once, e.g. after a raid.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.KICK_MEMBERS)).addOption(OptionType.STRING, "users", "User IDs or mentions, separated by spaces.", false).addOption(OptionType.INTEGER, "joined", "Also everyone who joined in the last N minutes.", false).addOption(OptionType.STRING, "reason", "Kick reason.", false).setGuildOnly(true), true, BulkModeration::masskickCommand)
+                .register(Commands.slash("purge", "Deletes recent messages of this channel, by user, content or age.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.MESSAGE_MANAGE)).addOption(OptionType.INTEGER, "count", "Number of messages to delete. Default: 100, at most 10000.", false).addOption(OptionType.USER, "user", "Only messages of this user.", false).addOption(OptionType.STRING, "pattern", "Only messages matching this regular expression, ignoring case.", false).addOption(OptionType.INTEGER, "minutes", "Only messages of the last N minutes.", false).setGuildOnly(true), true, Purge::purgeCommand)
+                .register(Commands.slash("banappealset", "Sets the number of days to count until appeal. Input zero to disable appeals.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.INTEGER, "days", "Number of days. Zero to disable. MAX = 366.", true).setGuildOnly(true), true, Bot::banAppealSetCommand)
+                .register(Commands.slash("banmessageset", "Set whether the bot should announce bans in main chat (arg 1) or in the banned user's DMs (arg 2).").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.BAN_MEMBERS)).addOption(OptionType.BOOLEAN, "main", "Announcing bans in main chat.", false).addOption(OptionType.BOOLEAN, "dm", "Announcing bans in DMs.", false).setGuildOnly(true), true, Bot::banMessageSetCommand)
+                .register(Commands.slash("reload", "Reload file creation.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.MANAGE_SERVER, Permission.MANAGE_CHANNEL)).setGuildOnly(true), true, Bot::reloadCommand)
+                .register(Commands.slash("tr", "Translate.").addOption(OptionType.STRING, "text", "What to translate?", true).addOption(OptionType.STRING, "to", "To what language? Default is English", false).addOption(OptionType.STRING, "from", "From what language?", false).setGuildOnly(false), false, Bot::trCommand)
+                .register(Commands.slash("height", "Convert height from metric to American and back.").addOption(OptionType.STRING, "height", "Height. Give in m, cm or [ft]'[in].", false).setGuildOnly(false), false, Bot::heightCommand)
+                .register(Commands.slash("convert", "Convert lengths, weights, temperatures, speeds and volumes between metric and imperial.").addOption(OptionType.STRING, "value", "E.g. 5 ft 11 in, 70 kg, 30 C, 100 km/h or 2 cups to ml.", true).addOption(OptionType.STRING, "to", "Target unit. Default: the metric or imperial counterpart.", false, true).setGuildOnly(false), false, Bot::convertCommand)
+                .register(Commands.slash("roll", "Roll.").addOption(OptionType.STRING, "dice", "What dice to roll? E.g. 2d6+1d8+3, 20 is 1d20, kh/kl keeps highest/lowest, ! explodes. Default: 1d6.", false).setGuildOnly(false), false, Bot::rollCommand)
+                .register(Commands.slash("random", "Random Wikipedia article in any language.").addOption(OptionType.STRING, "language", "Default: English, provide a valid Wikipedia language code (e.g. German - de)", false).setGuildOnly(false), false, Bot::randomCommand)
+                .register(Commands.slash("data", "Information about the bot.").setGuildOnly(false), false, Bot::dataCommand)
+                .register(Commands.slash("stats", "Latency and load statistics of the bot.").setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.MANAGE_SERVER)).setGuildOnly(false), false, Bot::statsCommand);
+    }
+    public static void addCommands(){ // registers the commands, unless they are unchanged since the last registration
+        JDA jda = Shards.any();
+        String hash = commands.hash(jda.getSelfUser().getApplicationId());
+        Path hashFile = Paths.get(DATA, "commands.sha256");
+        try{
+            if(Files.exists(hashFile) && Files.readString(hashFile).trim().equals(hash)){
+                logger.info("Command definitions unchanged, registration skipped.");
+                return;
+            }
+        }catch(IOException e){
+            logger.warn("Unable to read {}, registering commands.", hashFile);
+        }
+        jda.updateCommands().addCommands(commands.definitions()).queue(
+            (registered) -> {
+                try{
+                    Files.writeString(hashFile, hash); // a torn write only causes one more registration
+                }catch(IOException e){
+                    logger.warn("Unable to save {}.", hashFile);
+                }
+                logger.info("Registered {} commands.", registered.size());
+            },
+            (error) -> logger.error("Unable to register commands.", error)
+        );
     }
     @Override
     public void onGuildJoin(GuildJoinEvent event){
         reloadFiles(event.getGuild()); // creates new data files, if necessary
+        VerificationIndex.rebuild(event.getGuild());
+    }
+    @Override
+    public void onGuildReady(GuildReadyEvent event){
+        VerificationIndex.rebuild(event.getGuild());
     }
     @Override
     public void onMessageReceived(MessageReceivedEvent event) throws NullPointerException{
@@ -104,416 +195,459 @@ public class Bot extends ListenerAdapter{
         if(member == null){
             return;
         }
-        Role role = jda.getRoleById(getSpecialSetting(4, event.getGuild()));
-        if(!(member.getRoles().contains(role)) && (member.getTimeJoined().plusSeconds(Integer.parseInt(getSpecialSetting(3, event.getGuild())))).isBefore(OffsetDateTime.now())){
-            event.getGuild().addRoleToMember(member, role).queue();
-        }
+        VerificationIndex.onMessage(member); // grants normally come from the scheduled sweep, this only covers a late one
+        AutoTranslate.onMessage(event);
     }
-    @Override // todo: split this method into smaller parts
+    @Override
     public void onSlashCommandInteraction(SlashCommandInteractionEvent event){
-        event.deferReply(); // universal deferreply for all commands
-        switch(event.getName()){
-            case "height" -> {
-                String rawInput = event.getOption("height").getAsString();
-                if(rawInput.matches("[0-9]+'[0-9]+.?[0-9]*")){
-                    String[] values = rawInput.split("'");
-                    double centimetres = (Double.parseDouble(values[0])*12+parseCommaDouble(values[1]))*2.54;
-                    event.reply(String.format(Locale.US, "``%s`` == ``%.2f cm``", rawInput, centimetres)).queue();
-                }else if(rawInput.matches("[0-9]+([.,][0-9]+)? ?c?m")){ // double-check for both m and cm
-                    double centimetres;
-                    if(rawInput.contains("cm")){
-                        centimetres = parseCommaDouble((rawInput.substring(0, rawInput.length()-2)).trim());
-                    }else{
-                        centimetres = parseCommaDouble((rawInput.substring(0, rawInput.length()-1)).trim())*100;
-                    }
-                    int feet = (int) ((int)(centimetres)/30.48);
-                    double inches = (centimetres-feet*30.48)/2.54;
-                    String output = String.format(Locale.US, "``%.2f m`` == ``%.1f cm`` == ``%d'%.2f``", centimetres/100, centimetres, feet, inches);
-                    // locale US sets the display to dots instead of commas (5'5.5 instead of 5'5,5)
-                    event.reply(output).queue();
-                }else{
-                    event.reply("Invalid format!").queue();
-                }
-                logger.info(String.format("User %s used HEIGHT in server %s.", event.getMember().getId(), event.getGuild().getName()));
-            }
-            case "set" -> { // for server admins to set channels for specific output
-                if(!event.getMember().hasPermission(Permission.MANAGE_CHANNEL)){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }
-                String type = event.getOption("type").getAsString().toLowerCase();
-                if(type.equals("info")){
-                    event.reply("This command changes the special channels for the server (channels used for specific purposes)\n Options are (case insensitive, only the first char counts):\ninfo - information\nm- main chat\n a - announcements\ns - staff chat\nl - logging chat\nr - rules.");
-                    break;
-                }
-                try{
-                    String name = "data/channels/" + event.getGuild().getId() + ".csv";
-                    Scanner scanner = new Scanner(Paths.get(name));
-                    String[] options = scanner.nextLine().split(",");
-                    HashMap<Character, Integer> eventMap = new HashMap<>(){{
-                        put('m', 0);
-                        put('a', 1);
-                        put('s', 2);
-                        put('l', 3);
-                        put('r', 4);
-                    }};
-                    try{
-                        options[eventMap.get(type.charAt(0))] = event.getOption("channel").getAsString();
-                    }catch(Exception e){
-                        event.reply("Wrong argument!").queue();
-                        break;
-                    }
-                    PrintWriter writer = new PrintWriter(name);
-                    writer.print(String.join(",", options));
-                    writer.close();
-                    logger.info(String.format("User %s changed property %s in server %s", event.getMember().getId(), eventMap.get(type.charAt(0)), event.getGuild().getName()));
-                    event.reply("The change has been successfully applied.").queue();
-                }catch(Exception e){
-                    logger.error(String.format("User %s encountered an unexpected ERROR while trying to change property %s in server %s", event.getMember().getId(), event.getOption("channel").getAsString(), event.getGuild().getName()));
-                    event.reply("An unexpected error has occurred. Contact the developer.").setEphemeral(true).queue();
-                }
-            }
-            case "setverifyrole" -> {
-                if(!event.getMember().hasPermission(Permission.MESSAGE_MANAGE)){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }
-                final String NAME = "data/banSettings/" + event.getGuild().getId() + ".csv";
-                int duration = Objects.requireNonNull(event.getOption("hours")).getAsInt();
-                if(duration < 0){
-                    event.reply("Erroneous duration - " + duration + " is not a valid duration. Input a non-negative number.").setEphemeral(true).queue();
-                    break;
-                }
-                try{
-                    Scanner scanner = new Scanner(Paths.get(NAME));
-                    String[] settings = scanner.nextLine().split(",");
-                    settings[3] = (duration*3600) + "";
-                    settings[4] = event.getOption("role").getAsRole().getId();
-                    PrintWriter writer = new PrintWriter(NAME);
-                    writer.println(String.join(",", settings));
-                    writer.close();
-                }catch(Exception ignored){}
-                event.reply("TEST").queue();
+        commands.dispatch(event); // timing, error counting and threading live in CommandRegistry
+    }
+    public static void heightCommand(SlashCommandInteractionEvent event){
+        event.reply(convertHeight(event.getOption("height").getAsString())).queue();
+        logger.info("User {} used HEIGHT in server {}.", event.getMember().getId(), event.getGuild().getName());
+    }
+    public static String convertHeight(String rawInput){
+        return Units.convertHeight(rawInput); // also accepts 5 ft 11 in, 71 in or 1 m 80 cm
+    }
+    public static void convertCommand(SlashCommandInteractionEvent event){
+        String target = (event.getOption("to") == null ? null : event.getOption("to").getAsString());
+        event.reply(Units.convert(event.getOption("value").getAsString(), target)).queue();
+    }
+    public static void setCommand(SlashCommandInteractionEvent event){ // for server admins to set channels for specific output
+        if(!event.getMember().hasPermission(Permission.MANAGE_CHANNEL)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        String type = event.getOption("type").getAsString().toLowerCase();
+        if(type.equals("info")){
+            event.reply("This command changes the special channels for the server (channels used for specific purposes)\n Options are (case insensitive, only the first char counts):\ninfo - information\nm- main chat\n a - announcements\ns - staff chat\nl - logging chat\nr - rules\nt - auto-translate chat (messages not in English get an English translation).").queue();
+            return;
+        }
+        HashMap<Character, Integer> eventMap = new HashMap<>(){{
+            put('m', 0);
+            put('a', 1);
+            put('s', 2);
+            put('l', 3);
+            put('r', 4);
+            put('t', 5);
+        }};
+        if(type.isEmpty() || !eventMap.containsKey(type.charAt(0))){
+            event.reply("Wrong argument!").queue();
+            return;
+        }
+        int index = eventMap.get(type.charAt(0));
+        String channelId = event.getOption("channel").getAsString();
+        if(GuildSettings.update(event.getGuild(), settings -> settings.withChannel(index, channelId))){
+            logger.info("User {} changed property {} in server {}", event.getMember().getId(), index, event.getGuild().getName());
+            event.reply("The change has been successfully applied.").queue();
+        }else{
+            logger.error("User {} encountered an unexpected ERROR while trying to change property {} in server {}", event.getMember().getId(), channelId, event.getGuild().getName());
+            event.reply("An unexpected error has occurred. Contact the developer.").setEphemeral(true).queue();
+        }
+    }
+    public static void setVerifyRoleCommand(SlashCommandInteractionEvent event){
+        if(!event.getMember().hasPermission(Permission.MESSAGE_MANAGE)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        int duration = Objects.requireNonNull(event.getOption("hours")).getAsInt();
+        if(duration < 0){
+            event.reply("Erroneous duration - " + duration + " is not a valid duration. Input a non-negative number.").setEphemeral(true).queue();
+            return;
+        }
+        String roleId = event.getOption("role").getAsRole().getId();
+        GuildSettings.update(event.getGuild(), settings -> settings.withVerification(duration*3600, roleId));
+        VerificationIndex.rebuild(event.getGuild());
+        event.reply("TEST").queue();
+    }
+    public static void kickCommand(SlashCommandInteractionEvent event){
+        if(!event.getMember().hasPermission(Permission.KICK_MEMBERS)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        User kicked = event.getOption("kicked").getAsUser();
+        String kickReason = (event.getOption("reason") != null ? event.getOption("reason").getAsString() : "");
+        withTarget(event, "kicked", target -> {
+            if(target == null){
+                event.reply("This user is not a member of this server.").setEphemeral(true).queue();
+                return;
             }
-            case "kick" -> {
-                if(!event.getMember().hasPermission(Permission.KICK_MEMBERS)){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }
-                User kicked = event.getOption("kicked").getAsUser();
-                String kickReason = (event.getOption("reason") != null ? event.getOption("reason").getAsString() : "");
-                try{
-                    event.getGuild().kick(event.getOption("kicked").getAsUser()).reason(kickReason).queue();
-                    logger.info(String.format("User %s was kicked by %s in server %s. " + (kickReason.equals("") ? "No reason provided." : "Reason: %s"), kicked.getId(), event.getMember().getId(), event.getGuild().getName(), kickReason));
-                    event.reply("Kick successful.").setEphemeral(true).queue();
-                }catch(HierarchyException h){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }catch(Exception e){
-                    logger.error(String.format("User %s encountered an unexpected ERROR while trying to ban %s in server %s. ", event.getMember().getId(), kicked.getId(), event.getGuild().getName()));
-                    e.printStackTrace();
-                    event.reply("An unexpected error has occurred.").setEphemeral(true).queue();
-                }
-                if(getSpecialSetting(2, event.getGuild()).equals("1")){
-                    privateMessage(kicked, "You have been kicked from " + event.getGuild().getName() + " by <@" + event.getMember().getId() + (kickReason.equals("") ? ">. No reason was provided" : (">. Reason:" + kickReason)));
-                }
+            try{
+                event.getGuild().kick(target).reason(kickReason).queue();
+                logger.event("kick", "guild", event.getGuild().getId(), "moderator", event.getMember().getId(), "user", kicked.getId(), "reason", kickReason);
+                event.reply("Kick successful.").setEphemeral(true).queue();
+            }catch(HierarchyException h){
+                insufficientPermissionsStandardResponseSlashCommand(event);
+                return;
+            }catch(Exception e){
+                logger.error("User {} encountered an unexpected ERROR while trying to kick {} in server {}.", event.getMember().getId(), kicked.getId(), event.getGuild().getName(), e);
+                event.reply("An unexpected error has occurred.").setEphemeral(true).queue();
             }
-            case "timeout" -> {
-                if(!event.getMember().hasPermission(Permission.KICK_MEMBERS)){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }
-                int seconds = processDuration(event.getOption("time").getAsString());
-                if(seconds < 0){
-                    event.reply("Incorrect duration. User cannot be timeouted.").setEphemeral(true).queue();
-                    logger.warn(String.format("User %s attempted to execute an illegal command.", event.getMember().getId()));
-                    break;
-                }
-                User user = event.getOption("user").getAsUser();
-                String reason = (event.getOption("reason") != null ? event.getOption("reason").getAsString() : "");
-                try{
-                    event.getGuild().timeoutFor(user, seconds, TimeUnit.SECONDS).queue();
-                    if(getSpecialSetting(2, event.getGuild()).equals("1")){
-                        privateMessage(user, "You have been banned from " + event.getGuild().getName() + " by <@" + event.getMember().getId() + (reason.equals("") ? ">. No reason was provided" : (">. Reason:" + reason)));
-                    }
-                    logger.info(String.format("User %s was timeouted by %s in server %s for %d seconds. " + (reason.equals("") ? "No reason provided." : "Reason: %s"), user.getId(), event.getMember().getId(), event.getGuild().getName(), seconds, reason));
-                    event.reply("User successfully timeouted.").setEphemeral(true).queue();
-                }catch(HierarchyException h){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }catch(Exception e){
-                    e.printStackTrace();
-                    logger.error(String.format("User %s encountered an unexpected ERROR while trying to ban %s in server %s. ", event.getMember().getId(), user.getId(), event.getGuild().getName()));
-                }
+            if(getSpecialSetting(2, event.getGuild()).equals("1")){
+                privateMessage(kicked, "You have been kicked from " + event.getGuild().getName() + " by <@" + event.getMember().getId() + (kickReason.equals("") ? ">. No reason was provided" : (">. Reason:" + kickReason)));
             }
-            case "ban" -> {
-                if(!event.getMember().hasPermission(Permission.BAN_MEMBERS)){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }
-                int deletionLength = (event.getOption("deletiontime") != null ? Math.min(MESSAGE_DELETION_LENGTH, event.getOption("deletiontime").getAsInt()) : MESSAGE_DELETION_LENGTH);
-                User user = event.getOption("banned").getAsUser();
-                if(user.getId().equals(event.getMember().getId())){
-                    event.reply("You cannot ban yourself.").queue();
-                    logger.warn(String.format("User %s attempted to execute an illegal command.", event.getMember().getId()));
-                    break;
-                }
-                String reason = (event.getOption("reason") != null ? event.getOption("reason").getAsString() : "");
-                event.deferReply();
-                String loggedInfo = user.getId() + "," + reason + "," + (System.currentTimeMillis() / 1000);
-                try{
-                    PrintWriter writer = new PrintWriter(new FileWriter(Paths.get("data/banList/" + event.getGuild().getId() + ".csv").toFile(), true));
-                    writer.println(loggedInfo);
-                    writer.close();
-                    if(getSpecialSetting(1, event.getGuild()).equals("1")){
-                        specialMessage(0, event.getGuild(), "The user <@" + user.getId() + "> has been banned from " + event.getGuild().getName() + ".");
-                    }
-                    if(getSpecialSetting(2, event.getGuild()).equals("1")){
-                        privateMessage(user, "You have been banned from " + event.getGuild().getName() + " by <@" + event.getMember().getId() + (reason.equals("") ? ">. No reason was provided" : (">. Reason:" + reason)));
-                    }
-                    event.getGuild().ban(user, deletionLength, TimeUnit.HOURS).reason(reason).queue();
-                    logger.info(String.format("User %s was banned by %s in server %s. " + (reason.equals("") ? "No reason provided." : "Reason: %s"), user.getId(), event.getMember().getId(), event.getGuild().getName(), reason));
-                    event.reply("Ban successful.").setEphemeral(true).queue();
-                }catch(HierarchyException h){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }catch(Exception e){
-                    //e.printStackTrace();
-                    reloadFiles(event.getGuild());
-                    logger.error(String.format("User %s encountered an unexpected ERROR while trying to ban %s in server %s. ", event.getMember().getId(), user.getId(), event.getGuild().getName()));
-                    event.reply("An unexpected error has occurred.").queue();
-                }
+        });
+    }
+    public static void timeoutCommand(SlashCommandInteractionEvent event){
+        if(!event.getMember().hasPermission(Permission.KICK_MEMBERS)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        int seconds = processDuration(event.getOption("time").getAsString());
+        if(seconds < 0){
+            event.reply("Incorrect duration. User cannot be timeouted.").setEphemeral(true).queue();
+            logger.warn("User {} attempted to execute an illegal command.", event.getMember().getId());
+            return;
+        }
+        User user = event.getOption("user").getAsUser();
+        String reason = (event.getOption("reason") != null ? event.getOption("reason").getAsString() : "");
+        withTarget(event, "user", target -> {
+            if(target == null){
+                event.reply("This user is not a member of this server.").setEphemeral(true).queue();
+                return;
             }
-            case "unban" -> {
-                User unbanUser = event.getOption("banned").getAsUser();
-                if(!event.getMember().hasPermission(Permission.BAN_MEMBERS)){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }
-                event.deferReply();
-                unban(unbanUser, event.getGuild());
-                try{
-                    Scanner scanner = new Scanner(Paths.get("data/banList/" + event.getGuild().getId() + ".csv"));
-                    ArrayList<String> lines = new ArrayList<>();
-                    while(scanner.hasNextLine()){
-                        String next = scanner.nextLine();
-                        if(!(next.contains(event.getOption("banned").getAsUser().getId()))){
-                            lines.add(next);
-                        }
-                    }
-                    scanner.close();
-                    PrintWriter writer = new PrintWriter(Paths.get("data/banList/" + event.getGuild().getId() + ".csv").toFile());
-                    for(String i : lines){
-                        writer.println(i);
-                    }
-                    writer.close();
-                    logger.info(String.format("User %s was unbanned by %s in server %s. ", event.getOption("banned").getAsUser().getId(), event.getMember().getId(), event.getGuild().getName()));
-                    event.reply("Unban successful.").setEphemeral(true).queue();
-                }catch(Exception ignored){
-                    logger.error(String.format("User %s encountered an unexpected ERROR while trying to unban %s in server %s.", event.getOption("banned").getAsUser().getId(), event.getMember().getId(), event.getGuild().getName()));
-                    event.reply("An unexpected error has occurred.").queue();
-                }
+            try{
+                event.getGuild().timeoutFor(target, seconds, TimeUnit.SECONDS).queue();
+                if(getSpecialSetting(2, event.getGuild()).equals("1")){
+                    privateMessage(user, "You have been banned from " + event.getGuild().getName() + " by <@" + event.getMember().getId() + (reason.equals("") ? ">. No reason was provided" : (">. Reason:" + reason)));
+                }
+                logger.event("timeout", "guild", event.getGuild().getId(), "moderator", event.getMember().getId(), "user", user.getId(), "seconds", seconds, "reason", reason);
+                event.reply("User successfully timeouted.").setEphemeral(true).queue();
+            }catch(HierarchyException h){
+                insufficientPermissionsStandardResponseSlashCommand(event);
+                return;
+            }catch(Exception e){
+                logger.error("User {} encountered an unexpected ERROR while trying to timeout {} in server {}.", event.getMember().getId(), user.getId(), event.getGuild().getName(), e);
             }
-            case "banappealset" -> {
-                if(!event.getMember().hasPermission(Permission.BAN_MEMBERS)){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                }
-                event.deferReply();
-                final String NAME = String.format("data/banSettings/%s.csv", event.getGuild().getId());
-                int duration = Objects.requireNonNull(event.getOption("days")).getAsInt();
-                if(Math.abs(duration - 183) > 183){
-                    event.reply("Erroneous duration - " + duration + " is not a valid duration. Input a positive number below 367.").setEphemeral(true).queue();
-                    break;
-                }
-                try{
-                    Scanner scanner = new Scanner(Paths.get(NAME));
-                    String[] settings = scanner.nextLine().split(",");
-                    duration *= 86400;
-                    settings[0] = duration + "";
-                    PrintWriter writer = new PrintWriter(NAME);
-                    writer.println(String.join(",", settings));
-                    writer.close();
-                }catch(Exception ignored){}
-                logger.info(String.format("User %s changed ban appeal time to %s in server %s.", event.getMember().getId(), duration + "", event.getGuild().getName()));
-                event.reply("The change has been successfully applied.").queue();
+        });
+    }
+    public static void banCommand(SlashCommandInteractionEvent event){
+        if(!event.getMember().hasPermission(Permission.BAN_MEMBERS)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        int deletionLength = (event.getOption("deletiontime") != null ? Math.min(MESSAGE_DELETION_LENGTH, event.getOption("deletiontime").getAsInt()) : MESSAGE_DELETION_LENGTH);
+        User user = event.getOption("banned").getAsUser();
+        if(user.getId().equals(event.getMember().getId())){
+            event.reply("You cannot ban yourself.").queue();
+            logger.warn("User {} attempted to execute an illegal command.", event.getMember().getId());
+            return;
+        }
+        String reason = (event.getOption("reason") != null ? event.getOption("reason").getAsString() : "");
+        event.deferReply();
+        withTarget(event, "banned", target -> { // users outside the server can be banned too
+            if(target != null && !event.getGuild().getSelfMember().canInteract(target)){ // checked before the ban is stored
+                insufficientPermissionsStandardResponseSlashCommand(event);
+                return;
             }
-            case "reload" -> {
-                if(!event.getMember().hasPermission(Permission.MANAGE_SERVER, Permission.MANAGE_CHANNEL)){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
+            try{
+                Storage.Ban ban = new Storage.Ban(user.getId(), reason.replace('\n', ' '), (int) (System.currentTimeMillis() / 1000));
+                Storage.bans(event.getGuild().getId()).put(ban);
+                AppealTimers.scheduleOpen(event.getGuild().getId(), ban);
+                if(getSpecialSetting(1, event.getGuild()).equals("1")){
+                    specialMessage(0, event.getGuild(), "The user <@" + user.getId() + "> has been banned from " + event.getGuild().getName() + ".");
                 }
+                if(getSpecialSetting(2, event.getGuild()).equals("1")){
+                    privateMessage(user, "You have been banned from " + event.getGuild().getName() + " by <@" + event.getMember().getId() + (reason.equals("") ? ">. No reason was provided" : (">. Reason:" + reason)));
+                }
+                event.getGuild().ban((target == null ? user : target), deletionLength, TimeUnit.HOURS).reason(reason).queue((success) -> BanIndex.add(event.getGuild().getId(), user.getIdLong()));
+                logger.event("ban", "guild", event.getGuild().getId(), "moderator", event.getMember().getId(), "user", user.getId(), "deletion_hours", deletionLength, "reason", reason);
+                event.reply("Ban successful.").setEphemeral(true).queue();
+            }catch(HierarchyException h){
+                insufficientPermissionsStandardResponseSlashCommand(event);
+                return;
+            }catch(Exception e){
                 reloadFiles(event.getGuild());
-                logger.info(String.format("User %s reloaded data files in server %s.", event.getMember().getId(), event.getGuild().getName()));
-                event.reply("Successfully reloaded!").queue();
+                logger.error("User {} encountered an unexpected ERROR while trying to ban {} in server {}.", event.getMember().getId(), user.getId(), event.getGuild().getName(), e);
+                event.reply("An unexpected error has occurred.").queue();
             }
-            case "banmessageset" -> {
-                if(!event.getMember().hasPermission(Permission.BAN_MEMBERS)){
-                    insufficientPermissionsStandardResponseSlashCommand(event);
-                    break;
-                }
-                event.deferReply();
-                try{
-                    final String NAME2 = "data/banSettings/" + event.getGuild().getId() + ".csv";
-                    Scanner scan = new Scanner(Paths.get(NAME2));
-                    String[] setts = scan.nextLine().split(",");
-                    setts[1] = String.valueOf(boolToInt(event.getOption("main").getAsBoolean()));
-                    setts[2] = String.valueOf(boolToInt(event.getOption("dm").getAsBoolean()));
-                    PrintWriter writer = new PrintWriter(NAME2);
-                    writer.println(String.join(",", setts));
-                    writer.close();
-                }catch(Exception ignored){}
-                event.reply("The change has been successfully applied.").queue();
-                logger.info(String.format("User %s changed ban message properties in server %s.", event.getMember().getId(), event.getGuild().getName()));
+        });
+    }
+    public static void unbanCommand(SlashCommandInteractionEvent event){
+        User unbanUser = event.getOption("banned").getAsUser();
+        if(!event.getMember().hasPermission(Permission.BAN_MEMBERS)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        event.deferReply();
+        unban(unbanUser, event.getGuild());
+        try{
+            Storage.bans(event.getGuild().getId()).remove(unbanUser.getId());
+            AppealTimers.cancelOpen(event.getGuild().getId(), unbanUser.getId());
+            logger.event("unban", "guild", event.getGuild().getId(), "moderator", event.getMember().getId(), "user", unbanUser.getId());
+            event.reply("Unban successful.").setEphemeral(true).queue();
+        }catch(Exception ignored){
+            logger.error("User {} encountered an unexpected ERROR while trying to unban {} in server {}.", event.getOption("banned").getAsUser().getId(), event.getMember().getId(), event.getGuild().getName());
+            event.reply("An unexpected error has occurred.").queue();
+        }
+    }
+    public static void banInfoCommand(SlashCommandInteractionEvent event){ // answered from memory, no requests
+        if(!event.getMember().hasPermission(Permission.BAN_MEMBERS)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        User user = event.getOption("user").getAsUser();
+        String guildId = event.getGuild().getId();
+        StringBuilder builder = new StringBuilder();
+        if(!BanIndex.isBanned(guildId, user.getIdLong())){
+            builder.append(String.format("<@%s> is not banned.", user.getId()));
+        }else{
+            Storage.Ban ban = Storage.bans(guildId).get(user.getId());
+            if(ban != null){
+                builder.append(String.format("<@%s> was banned <t:%d:R>%s.", user.getId(), ban.time(), (ban.reason().equals("") ? "" : " for " + ban.reason())));
+                GuildSettings settings = GuildSettings.of(event.getGuild());
+                if(settings != null && settings.appealTime > 0){
+                    builder.append(String.format(" Automatic appeal <t:%d:R>.", ban.time() + settings.appealTime));
+                }
+            }else if(Storage.appeals(guildId).rows().stream().anyMatch(appeal -> appeal.userId().equals(user.getId()))){
+                builder.append(String.format("<@%s> is banned, the appeal vote is open.", user.getId()));
+            }else{
+                builder.append(String.format("<@%s> is banned. The ban was made outside the bot, so no reason is recorded.", user.getId()));
             }
-            case "tr" -> {
-                long time = System.currentTimeMillis();
-                String to = event.getOption("to").getAsString();
-                String from = (event.getOption("from") == null ? "EN" : event.getOption("from").getAsString());
-                String text;
-                try{
-                    text = URLEncoder.encode(event.getOption("text").getAsString(), "UTF-8");
-                }catch(Exception ignored){
-                    break;
-                }
-                if(text.length() > 128){
-                    event.reply("Too long!").queue();
-                    break;
-                }
-                Map<String, String> langMap = Map.ofEntries(Map.entry("bulgarian", "BG"), Map.entry("czech", "CS"), Map.entry("danish", "DA"), Map.entry("german", "DE"), Map.entry("greek", "EL"), Map.entry("english", "EN"), Map.entry("spanish", "ES"), Map.entry("estonian", "ET"), Map.entry("finnish", "FI"), Map.entry("french", "FR"), Map.entry("hungarian", "HU"), Map.entry("indonesian", "ID"), Map.entry("italian", "IT"), Map.entry("japanese", "JA"), Map.entry("korean", "KO"), Map.entry("lithuanian", "LT"), Map.entry("latvian", "LV"), Map.entry("norwegian", "NB"), Map.entry("dutch", "NL"), Map.entry("polish", "PL"), Map.entry("portuguese", "PT"), Map.entry("romanian", "RO"), Map.entry("russian", "RU"), Map.entry("slovak", "SK"), Map.entry("slovenian", "SL"), Map.entry("swedish", "SV"), Map.entry("turkish", "TR"), Map.entry("ukrainian", "UK"));
-                if(langMap.containsKey(to.toLowerCase())){
-                    to = langMap.get(to.toLowerCase());
-                }
-                if(langMap.containsKey(from.toLowerCase())){
-                    from = langMap.get(from.toLowerCase());
-                }
-                if(!(langMap.containsValue(to.toUpperCase())) || (!(langMap.containsValue(from.toUpperCase())) && !(from.equals("")))){
-                    event.reply("Incorrect language.").queue();
-                    break;
-                }
-                try{
-                    URL url = new URL(String.format("https://api-free.deepl.com/v2/translate?text=%s%s&target_lang=%s", text, (from.equals("") ? "" : "&source_lang=" + from), to.toUpperCase()));
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    connection.setRequestMethod("POST");
-                    connection.setRequestProperty("Authorization", String.format("DeepL-Auth-Key %s", System.getenv("DEEPL")));
-                    connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-                    connection.connect();
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                    String[] output = reader.readLine().split("\"");
-                    String translatedContent = output[9];
-                    logger.info(String.format("User %s translated %d chars of text in server %s. Request time: %d ms.", event.getMember().getId(), text.length(), event.getGuild().getName(), System.currentTimeMillis() - time));
-                    event.reply(translatedContent).queue();
-                }catch(Exception e){
-                    e.printStackTrace();
-                    logger.error(String.format("User %s encountered an unexpected ERROR while trying to translate text in server %s. Request time: %d ms.", event.getMember().getId(), event.getGuild().getName(), System.currentTimeMillis() - time));
-                }
+        }
+        builder.append(String.format("\n%d users are banned in this server.", BanIndex.count(guildId)));
+        event.reply(builder.toString()).setEphemeral(true).queue();
+    }
+    public static void banAppealSetCommand(SlashCommandInteractionEvent event){
+        if(!event.getMember().hasPermission(Permission.BAN_MEMBERS)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        event.deferReply();
+        int duration = Objects.requireNonNull(event.getOption("days")).getAsInt();
+        if(Math.abs(duration - 183) > 183){
+            event.reply("Erroneous duration - " + duration + " is not a valid duration. Input a positive number below 367.").setEphemeral(true).queue();
+            return;
+        }
+        duration *= 86400;
+        int appealTime = duration;
+        GuildSettings.update(event.getGuild(), settings -> settings.withAppealTime(appealTime));
+        AppealTimers.rescheduleGuild(event.getGuild().getId());
+        logger.info("User {} changed ban appeal time to {} in server {}.", event.getMember().getId(), duration, event.getGuild().getName());
+        event.reply("The change has been successfully applied.").queue();
+    }
+    public static void reloadCommand(SlashCommandInteractionEvent event){
+        if(!event.getMember().hasPermission(Permission.MANAGE_SERVER, Permission.MANAGE_CHANNEL)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        reloadFiles(event.getGuild());
+        GuildSettings.invalidate(event.getGuild()); // picks up manual edits of the data files
+        logger.info("User {} reloaded data files in server {}.", event.getMember().getId(), event.getGuild().getName());
+        event.reply("Successfully reloaded!").queue();
+    }
+    public static void banMessageSetCommand(SlashCommandInteractionEvent event){
+        if(!event.getMember().hasPermission(Permission.BAN_MEMBERS)){
+            insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        event.deferReply();
+        GuildSettings.update(event.getGuild(), settings -> settings.withBanMessages(
+                (event.getOption("main") == null ? settings.announceInMain : event.getOption("main").getAsBoolean()),
+                (event.getOption("dm") == null ? settings.announceInDm : event.getOption("dm").getAsBoolean())));
+        event.reply("The change has been successfully applied.").queue();
+        logger.info("User {} changed ban message properties in server {}.", event.getMember().getId(), event.getGuild().getName());
+    }
+    public static void trCommand(SlashCommandInteractionEvent event){
+        long time = System.currentTimeMillis();
+        String to = (event.getOption("to") == null ? "EN" : event.getOption("to").getAsString());
+        String from = (event.getOption("from") == null ? "EN" : event.getOption("from").getAsString());
+        String text;
+        try{
+            text = URLEncoder.encode(event.getOption("text").getAsString(), "UTF-8");
+        }catch(Exception ignored){
+            return;
+        }
+        if(text.length() > 128){
+            event.reply("Too long!").queue();
+            return;
+        }
+        Map<String, String> langMap = Map.ofEntries(Map.entry("bulgarian", "BG"), Map.entry("czech", "CS"), Map.entry("danish", "DA"), Map.entry("german", "DE"), Map.entry("greek", "EL"), Map.entry("english", "EN"), Map.entry("spanish", "ES"), Map.entry("estonian", "ET"), Map.entry("finnish", "FI"), Map.entry("french", "FR"), Map.entry("hungarian", "HU"), Map.entry("indonesian", "ID"), Map.entry("italian", "IT"), Map.entry("japanese", "JA"), Map.entry("korean", "KO"), Map.entry("lithuanian", "LT"), Map.entry("latvian", "LV"), Map.entry("norwegian", "NB"), Map.entry("dutch", "NL"), Map.entry("polish", "PL"), Map.entry("portuguese", "PT"), Map.entry("romanian", "RO"), Map.entry("russian", "RU"), Map.entry("slovak", "SK"), Map.entry("slovenian", "SL"), Map.entry("swedish", "SV"), Map.entry("turkish", "TR"), Map.entry("ukrainian", "UK"));
+        if(langMap.containsKey(to.toLowerCase())){
+            to = langMap.get(to.toLowerCase());
+        }
+        if(langMap.containsKey(from.toLowerCase())){
+            from = langMap.get(from.toLowerCase());
+        }
+        if(!(langMap.containsValue(to.toUpperCase())) || (!(langMap.containsValue(from.toUpperCase())) && !(from.equals("")))){
+            event.reply("Incorrect language.").queue();
+            return;
+        }
+        String source = from;
+        String target = to.toUpperCase();
+        TranslationCache.Key key = TranslationCache.key(event.getOption("text").getAsString(), source, target);
+        event.deferReply().queue();
+        TranslationCache.get(key, () -> deeplTranslate(text, source, target)).whenComplete((translatedContent, error) -> {
+            if(error != null){
+                logger.error("User {} encountered an unexpected ERROR while trying to translate text in server {}. Request time: {} ms. {}", event.getUser().getId(), (event.getGuild() == null ? "DM" : event.getGuild().getName()), System.currentTimeMillis() - time, Http.rootCause(error));
+                event.getHook().sendMessage("The translation service is not responding. Try again later.").queue();
+                return;
             }
-            case "roll" -> {
-                String rawInput = (event.getOption("dice") == null ? "1d6" : event.getOption("dice").getAsString());
-                if(!rawInput.matches("^([0-9]{0,2}d?[1-9][0-9]{0,7}\\+)*([0-9]{0,2}d?[1-9][0-9]{0,7})?$")){
-                    event.reply("Wrong format!").queue();
-                    break;
-                }
-                rawInput = rawInput.replaceAll("^d", "1d").replaceAll("\\+d", "\\+1d");
-                String[] splitInput = rawInput.split("\s*\\+\s*");
-                Random random = new Random();
-                int outputInt = 0;
-                String outputStr = "";
-                boolean skipNext = false;
-                for(int i = 0; i < splitInput.length; i++){
-                    if(skipNext){
-                        skipNext = false;
-                        continue;
-                    }
-                    String[] tempSplitInput = (splitInput[i].contains("d") ? splitInput[i].split("d") : new String[]{"1", (splitInput[i])});
-                    outputStr += tempSplitInput[0] + "d" + tempSplitInput[1] + ": ";
-                    int bonus = (splitInput.length - 1 != i ? (!(splitInput[i + 1].contains("d")) ? Integer.parseInt(splitInput[i + 1]) : 0) : 0);
-                    if(Integer.parseInt(tempSplitInput[0]) == 0){
-                        event.reply("Wrong input!").queue();
-                        return;
-                    }
-                    for(int j = 1; j <= Integer.parseInt(tempSplitInput[0]); j++){
-                        int randomNum = random.nextInt(Integer.parseInt(tempSplitInput[1])) + bonus + 1;
-                        skipNext = (bonus != 0);
-                        outputInt += randomNum;
-                        outputStr += (randomNum - bonus) + ", ";
-                    }
-                    outputStr = outputStr.replaceAll(",\s$", (skipNext ? " (+" + bonus + ")\n" : "\n"));
+            logger.info("User {} translated {} chars of text in server {}. Request time: {} ms, {}.", event.getUser().getId(), text.length(), (event.getGuild() == null ? "DM" : event.getGuild().getName()), System.currentTimeMillis() - time, TranslationCache.stats());
+            event.getHook().sendMessage(translatedContent).queue();
+        });
+    }
+    public static void rollCommand(SlashCommandInteractionEvent event){
+        String rawInput = (event.getOption("dice") == null ? "1d6" : event.getOption("dice").getAsString());
+        try{
+            event.reply(Dice.compile(rawInput).roll()).queue();
+        }catch(IllegalArgumentException e){
+            event.reply(e.getMessage()).queue();
+        }
+    }
+    public static void randomCommand(SlashCommandInteractionEvent event){
+        long time = System.currentTimeMillis();
+        String language = (event.getOption("language") == null ? "en" : event.getOption("language").getAsString().toLowerCase());
+        String server = (event.getGuild() == null ? "DM" : event.getGuild().getName());
+        if(!language.matches("[a-z][a-z-]{1,11}")){
+            logger.warn("User {} attempted to execute an illegal command in server {}.", event.getUser().getId(), server);
+            event.reply("No such language exists.").queue();
+            return;
+        }
+        String pooled = RandomArticlePool.poll(language);
+        if(pooled != null){
+            logger.info("User {} used RANDOM in server {}. Served from the pool, {}.", event.getUser().getId(), server, RandomArticlePool.stats());
+            event.reply(pooled).queue();
+            return;
+        }
+        event.deferReply().queue();
+        RandomArticlePool.fetch(language).whenComplete((article, error) -> {
+            if(error != null){
+                Throwable cause = Http.rootCause(error);
+                if(cause instanceof UnknownHostException || cause instanceof UnresolvedAddressException){
+                    logger.warn("User {} attempted to execute an illegal command in server {}. Request time: {} ms.", event.getUser().getId(), server, System.currentTimeMillis() - time);
+                    event.getHook().sendMessage("No such language exists.").queue();
+                }else{
+                    logger.error("User {} encountered a Wikipedia server ERROR while trying to use RANDOM in server {}. Request time: {} ms. {}", event.getUser().getId(), server, System.currentTimeMillis() - time, cause);
+                    event.getHook().sendMessage("No such language exists or the Wikipedia servers are not responding.").queue();
                 }
-                outputStr += String.format("**Total: %d **", outputInt);
-                event.reply(outputStr).queue();
+                return;
             }
-            case "random" -> {
-                long time = System.currentTimeMillis();
-                try{
-                    String language = (event.getOption("language") == null ? "en" : event.getOption("language").getAsString());
-                    URL url = new URL(String.format("https://%s.wikipedia.org/wiki/Special:Random", language));
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                    connection.setRequestMethod("GET");
-                    connection.connect();
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                    String curline = "";
-                    while(!curline.contains("link rel=\"canonical\"")){ // not the most efficient approach, but works (?)
-                        curline = reader.readLine();
-                        //System.out.println(curline);
-                    }
-                    logger.info(String.format("User %s used RANDOM in server %s. Request time: %d ms.", event.getMember().getId(), event.getGuild().getName(), System.currentTimeMillis() - time));
-                    event.reply(curline.substring(28, curline.length()-3)).queue();
-                }catch(NullPointerException e){
-                    logger.error(String.format("User %s encountered a Wikipedia server ERROR while trying to use RANDOM in server %s. Request time: %d ms.", event.getMember().getId(), event.getGuild().getName(), System.currentTimeMillis() - time));
-                    event.reply("No such language exists or the Wikipedia servers are not responding.").queue();
-                }catch(UnknownHostException f){
-                    logger.warn(String.format("User %s attempted to execute an illegal command in server %s. Request time: %d ms.", event.getMember().getId(), event.getGuild().getName(), System.currentTimeMillis() - time));
-                    event.reply("No such language exists.").queue();
-                }catch(Exception g){
-                    logger.error(String.format("User %s encountered an unexpected ERROR while trying to use RANDOM in server %s. Request time: %d ms.", event.getMember().getId(), event.getGuild().getName(), System.currentTimeMillis() - time));
-                    event.reply("An unexpected error has occurred. Contact the developer.").queue();
-                }
+            logger.info("User {} used RANDOM in server {}. Request time: {} ms, {}.", event.getUser().getId(), server, System.currentTimeMillis() - time, RandomArticlePool.stats());
+            event.getHook().sendMessage(article).queue();
+        });
+    }
+    public static void dataCommand(SlashCommandInteractionEvent event){
+        event.reply(
+                "**International Bot**\n " +
+                "**Current version:** Alpha 0.4.6c\n " +
+                "**Created for:** International Hangout\n " +
+                "**Owner:** crazyjerz#0849\n **Runs on:**\n" +
+                "   Eclipse Adoptium Java 17 (https://adoptium.net/)\n  " +
+                "JDA 5.0.0 (https://github.com/DV8FromTheWorld/JDA)\n " +
+                "**Running since:** 14 March 2023"
+        ).setEphemeral(true).queue();
+    }
+    public static void statsCommand(SlashCommandInteractionEvent event){
+        StringBuilder builder = new StringBuilder("**Commands** (calls, errors, mean / p99 / max ms)\n");
+        for(CommandRegistry.Entry entry : commands.entries()){
+            Metrics.Histogram latency = entry.latency();
+            if(latency.count() > 0){
+                builder.append(String.format(Locale.US, "``%s``: %d, %d, %.1f / %.1f / %.1f\n", entry.name(), latency.count(), entry.errors(), latency.meanMillis(), latency.percentileMillis(0.99), latency.maxMillis()));
             }
-            case "data" ->
-                event.reply(
-                        "**International Bot**\n " +
-                        "**Current version:** Alpha 0.4.6c\n " +
-                        "**Created for:** International Hangout\n " +
-                        "**Owner:** crazyjerz#0849\n **Runs on:**\n" +
-                        "   Eclipse Adoptium Java 17 (https://adoptium.net/)\n  " +
-                        "JDA 5.0.0 (https://github.com/DV8FromTheWorld/JDA)\n " +
-                        "**Running since:** 14 March 2023"
-                ).setEphemeral(true).queue();
         }
+        builder.append("**Events** (count, mean / p99 ms)\n");
+        Metrics.histograms("bot_event_duration_seconds").forEach((labels, latency) ->
+                builder.append(String.format(Locale.US, "``%s``: %d, %.2f / %.1f\n", labels.substring(7, labels.length()-1), latency.count(), latency.meanMillis(), latency.percentileMillis(0.99))));
+        builder.append("**Outbound HTTP** (count, mean / p99 ms)\n");
+        Metrics.histograms("bot_http_request_seconds").forEach((labels, latency) ->
+                builder.append(String.format(Locale.US, "``%s``: %d, %.1f / %.1f\n", labels.substring(6, labels.length()-1), latency.count(), latency.meanMillis(), latency.percentileMillis(0.99))));
+        builder.append(String.format("**Shards:** %d/%d connected of %d\n**Queues:** scheduler %d, shards %d, REST pool %d, blocking commands %d\n",
+                Metrics.gaugeValue("bot_shards_connected"), Shards.localCount(), Shards.total(), Metrics.gaugeValue("bot_scheduler_queue"), Metrics.gaugeValue("bot_shard_queue"), Metrics.gaugeValue("bot_rest_pool_queue"), Metrics.gaugeValue("bot_blocking_command_queue")));
+        builder.append("**Outbound:** ").append(Outbox.stats()).append('\n');
+        builder.append("**DeepL:** ").append(DeeplBatcher.stats()).append('\n');
+        builder.append(MemberCache.footprint());
+        String output = builder.toString();
+        event.reply(output.length() > 1990 ? output.substring(0, 1990) + "\n..." : output).setEphemeral(true).queue();
     }
     @Override
     public void onCommandAutoCompleteInteraction(CommandAutoCompleteInteractionEvent event){
         switch(event.getName()){
             case "set":
                 if(event.getFocusedOption().getName().equals("type")){
-                    String[] options = {"info", "m", "a", "s", "l", "r"};
+                    String[] options = {"info", "m", "a", "s", "l", "r", "t"};
                     ArrayList<Command.Choice> optionsList = (ArrayList<Command.Choice>) Arrays.asList(options).stream().map(word -> new Command.Choice(word, word)).collect(Collectors.toList());
                     event.replyChoices(optionsList).queue();
                 }
+                break;
+            case "convert":
+                if(event.getFocusedOption().getName().equals("to")){
+                    String value = (event.getOption("value") == null ? null : event.getOption("value").getAsString());
+                    event.replyChoices(Units.suggest(value, event.getFocusedOption().getValue()).stream().map(unit -> new Command.Choice(String.format("%s (%s)", unit.name(), unit.symbol()), unit.symbol())).collect(Collectors.toList())).queue();
+                }
+                break;
         }
     }
     @Override
     public void onGuildMemberJoin(GuildMemberJoinEvent event){
-        specialMessage(0, event.getGuild(), "<@"+event.getMember().getId()+"> Welcome!");
-        logger.info(String.format("User %s joined server %s.", event.getMember().getId(), event.getGuild().getName()));
+        VerificationIndex.track(event.getMember());
+        if(RaidDetector.onJoin(event.getMember())){ // no welcomes during a join flood, they would use up the rate limit of the main chat
+            specialMessage(0, event.getGuild(), "<@"+event.getMember().getId()+"> Welcome!", Outbox.LOW);
+        }
+        logger.info("User {} joined server {}.", event.getMember().getId(), event.getGuild().getName());
     }
     @Override
     public void onGuildMemberRemove(GuildMemberRemoveEvent event){
-        ErrorHandler handler = new ErrorHandler().handle(ErrorResponse.UNKNOWN_BAN, (error) -> guildMemberRemoveFunc(event));
-        event.getGuild().retrieveBan(event.getUser()).queue(null, handler);
+        VerificationIndex.untrack(event.getGuild(), event.getUser().getIdLong());
+        Shards.executor(event.getGuild().getIdLong()).schedule(() -> { // banned members leave silently, answered from the ban index without a request
+            if(!BanIndex.isBanned(event.getGuild().getId(), event.getUser().getIdLong())){
+                guildMemberRemoveFunc(event);
+            }
+        }, BanIndex.BAN_EVENT_DELAY, TimeUnit.MILLISECONDS);
+    }
+    @Override
+    public void onGuildBan(GuildBanEvent event){ // bans made outside the bot too
+        BanIndex.add(event.getGuild().getId(), event.getUser().getIdLong());
+    }
+    @Override
+    public void onGuildUnban(GuildUnbanEvent event){
+        BanIndex.remove(event.getGuild().getId(), event.getUser().getIdLong());
+    }
+    @Override
+    public void onGuildMemberRoleAdd(GuildMemberRoleAddEvent event){
+        if(event.getRoles().stream().anyMatch(role -> role.getId().equals(getSpecialSetting(4, event.getGuild())))){
+            VerificationIndex.untrack(event.getGuild(), event.getMember().getIdLong());
+        }
+    }
+    @Override
+    public void onMessageReactionAdd(MessageReactionAddEvent event){
+        AppealVotes.onReaction(event.getMessageIdLong(), event.getEmoji(), 1);
+    }
+    @Override
+    public void onMessageReactionRemove(MessageReactionRemoveEvent event){
+        AppealVotes.onReaction(event.getMessageIdLong(), event.getEmoji(), -1);
+    }
+    @Override
+    public void onMessageReactionRemoveAll(MessageReactionRemoveAllEvent event){
+        AppealVotes.onReactionsCleared(event.getMessageIdLong(), null);
+    }
+    @Override
+    public void onMessageReactionRemoveEmoji(MessageReactionRemoveEmojiEvent event){
+        AppealVotes.onReactionsCleared(event.getMessageIdLong(), event.getEmoji());
+    }
+    public static void withTarget(SlashCommandInteractionEvent event, String option, Consumer<Member> action){ // null if the user is not in the server
+        Member member = event.getOption(option).getAsMember(); // resolved by discord with the interaction, so usually no request is needed
+        if(member != null){
+            action.accept(member);
+            return;
+        }
+        User user = event.getOption(option).getAsUser();
+        MemberCache.pin(event.getGuild(), user); // the lean cache would drop the retrieved member right away
+        event.getGuild().retrieveMember(user).queue(action, (error) -> action.accept(null));
     }
     public static void unban(User user, Guild guild){
-        guild.unban(user).queue();
+        guild.unban(user).queue((success) -> BanIndex.remove(guild.getId(), user.getIdLong()));
         if(getSpecialSetting(2, guild).equals("1")){
             privateMessage(user, ("You have been unbanned from " + guild.getName() + ". Welcome back!"));
         }
     }
     public static void guildMemberRemoveFunc(GuildMemberRemoveEvent event){
-        specialMessage(0, event.getGuild(), "<@" + event.getUser().getId() + "> has left our server. We hope to see you again.");
-        logger.info(String.format("User %s left server %s.", event.getUser().getId(), event.getGuild().getName()));
+        specialMessage(0, event.getGuild(), "<@" + event.getUser().getId() + "> has left our server. We hope to see you again.", Outbox.LOW);
+        logger.info("User {} left server {}.", event.getUser().getId(), event.getGuild().getName());
     }
     public static void scheduledStatusChanger(){
         try{
-            String[] text = (new Scanner(Paths.get("data/Activities.txt")).useDelimiter("\\A").next().split("\nWATCHING"));
+            String[] text = (new Scanner(Paths.get(DATA, "Activities.txt")).useDelimiter("\\A").next().split("\nWATCHING"));
             String[][] array = {text[0].split("\n"), text[1].split("\n")};
             Random rand = new Random();
             String content = "";
@@ -529,170 +663,34 @@ public class Bot extends ListenerAdapter{
             }else{
                 activity = Activity.watching(content);
             }
-            jda.getPresence().setActivity(activity);
-            logger.info(String.format("Status changed to %s.", (activity.getType() == Activity.ActivityType.PLAYING ? "playing" : "watching") + String.format(" %s", activity.getName())));
+            Shards.setActivity(activity);
+            logger.info("Status changed to {} {}.", (activity.getType() == Activity.ActivityType.PLAYING ? "playing" : "watching"), activity.getName());
             scheduler.schedule(Bot::scheduledStatusChanger, STATUS_CHANGE_DURATION, TimeUnit.SECONDS);
         }catch(Exception e){
-            e.printStackTrace();
+            logger.error("Unable to change the status.", e);
         }
     }
     public static void automaticAppealer(){
-        try{
-            DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get("data/appeals"));
-            for(Path i : stream){
-                String name = i.getFileName().toString();
-                Scanner scan = new Scanner(i);
-                ArrayList<String> appealed = new ArrayList<>();
-                while(scan.hasNextLine()){
-                    Guild guild = jda.getGuildById(name.substring(0, name.length()-4));
-                    String text = scan.nextLine();
-                    if(text.equals("\n")){
-                        continue;
-                    }
-                    String[] content = text.split(",");
-                    if(Integer.parseInt(content[1]) <= curtime()){
-                        appealed.add(text);
-                        getSpecialChannel(2, guild).getHistory().retrievePast(100).queue(n -> {
-                            for(Message j : n){
-                                if(j.getId().equals(content[0])){
-                                    List<MessageReaction> reactions = j.getReactions();
-                                    int[] votes = {0, 0};
-                                    for(MessageReaction k : reactions){
-                                        String emoji = k.getEmoji().getFormatted();
-                                        // below unicode codepoint is a thumbs-up emoji
-                                        if(emoji.equals("\uD83D\uDC4D")){
-                                            votes[0] = k.getCount();
-                                        }else if(emoji.equals("\uD83D\uDC4E")){
-                                            votes[1] = k.getCount();
-                                        }else{
-                                            continue;
-                                        }
-                                    }
-                                    boolean isWon = (votes[0] > votes[1]);
-                                    if(votes[0]+votes[1] < 5){
-                                        specialMessage(2, guild, String.format("Not enough votes. \n<@%s> not unbanned.", content[2]));
-                                    }else{
-                                        specialMessage(2, guild, String.format("Appeal %ssuccessful.\n<@%s> %s unbanned.", (isWon ? "" : "un"), content[2], (isWon ? "has been" : "will not be")));
-                                    }
-                                    if(isWon){
-                                        try{
-                                            jda.retrieveUserById(content[2]).queue(u -> {
-                                                unban(u, guild);
-                                            });
-                                        }catch(Exception ignored){}
-                                        logger.info(String.format("User %s was unbanned by appeal in server %s.", content[2], content[0]));
-                                    }else{
-                                        logger.info(String.format("Ban appeal of user %s unsuccessful in server %s.", content[2], content[0]));
-                                    }
-                                }
-                            }
-                        });
-                    }
-                }
-                scan.close();
-                Scanner scan2 = new Scanner(i);
-                StringBuilder newContent = new StringBuilder();
-                while(scan2.hasNextLine()){
-                    String text = scan2.nextLine();
-                    if(!(appealed.contains(text))){
-                        newContent.append(text).append("\n");
-                    }
-                }
-                PrintWriter w = new PrintWriter(new FileWriter(i.toFile(), false));
-                if(!newContent.isEmpty()){
-                    w.println(newContent.substring(0, newContent.length() - 2));
-                }
-                w.close();
-            }
-        }catch(Exception e){
-            e.printStackTrace();
-            logger.info("Unexpected ERROR encountered while trying to process appeals.");
-        }
-        try{
-            DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get("data/banList"));
-            for(Path i : stream){
-                String name = i.getFileName().toString();
-                Scanner settingsScanner = new Scanner(Paths.get("data/banSettings/"+name));
-                int appealTime = Integer.parseInt(settingsScanner.nextLine().split(",")[0]);
-                //System.out.println(appealTime);
-                Scanner scanner = new Scanner(i);
-                ArrayList<String> toDelete = new ArrayList<>();
-                while(scanner.hasNextLine()){
-                    String text = scanner.nextLine();
-                    if(text.equals("")){
-                        continue;
-                    }
-                    String[] contents = text.split(",");
-                    if(curtime() >= Integer.parseInt(contents[2])+appealTime){
-                        try{
-                            jda.retrieveUserById(contents[0]).queue(u -> {
-                                jda.getGuildById(name.substring(0, name.length()-4)).retrieveBan(u).queue(
-                                    (success) -> {
-                                        System.out.println(contents[0]);
-                                        toDelete.add(contents[0]);
-                                        String message = String.format("Automatic Appeal\nUser <@%s> was banned %d days ago%s. Vote for appeal:", contents[0], appealTime/3600, (contents[1].equals("") ? "" : " for "+contents[1]));
-                                        getSpecialChannel(2, jda.getGuildById(name.substring(0, name.length()-4))).sendMessage(message).queue((m) -> {
-                                            try{
-                                                String messageId = m.getId();
-                                                m.addReaction(Emoji.fromUnicode("U+1F44D")).queue();
-                                                m.addReaction(Emoji.fromUnicode("U+1F44E")).queue();
-                                                PrintWriter v = new PrintWriter(new FileWriter(Paths.get("data/appeals/" + name).toFile(), true));
-                                                v.println(messageId+(","+(curtime()+86375))+","+contents[0]);
-                                                v.close();
-                                                logger.info(String.format("Ban appeal of user %s started in server %s.", contents[0], name.substring(0, name.length()-4)));
-                                                scanner.close();
-                                                StringBuilder tobeprinted = new StringBuilder();
-                                                Scanner scanner2 = new Scanner(i);
-                                                while(scanner2.hasNextLine()){
-                                                    String text5 = scanner2.nextLine();
-                                                    if(text.equals("")){
-                                                        continue;
-                                                    }
-                                                    //System.out.println(text);
-                                                    if(!(toDelete.contains(text5.split(",")[0]))){
-                                                        tobeprinted.append(text5).append("\n");
-                                                    }
-                                                }
-                                                PrintWriter w = new PrintWriter(new FileWriter(Paths.get("data/banList/"+name).toFile(), false));
-                                                w.println(tobeprinted);
-                                                w.close();
-                                            }catch(Exception e){
-                                                e.printStackTrace();
-                                            }
-                                        });
-                                    },
-                                    (failure) -> {
-                                        // todo: deleting unnecessary banlist entries here
-                                    }
-                                );
-                            });
-                        }catch(Exception ignored){}
-                    }
-                }
-            }
-        }catch(Exception ignored){
-            ignored.printStackTrace();
-        }
-        scheduler.schedule(Bot::automaticAppealer, 43200, TimeUnit.SECONDS);
+        AppealTimers.start(); // every ban and appeal gets its own timer, see AppealTimers
+    }
+    public static CompletableFuture<String> deeplTranslate(String encodedText, String from, String to){
+        return DeeplBatcher.translate(encodedText, from, to); // shares a request with other texts for the same languages, see DeeplBatcher
     }
     public static void insufficientPermissionsStandardResponseSlashCommand(SlashCommandInteractionEvent event){
-        logger.warn(String.format("User %s attempted to execute an illegal command in server %s.", event.getMember().getId(), event.getGuild().getId()));
+        logger.warn("User {} attempted to execute an illegal command in server {}.", event.getMember().getId(), event.getGuild().getId());
         event.reply("Insufficient permissions!").queue();
     }
     public static TextChannel getSpecialChannel(int index, Guild guild){
+        GuildSettings settings = GuildSettings.of(guild);
         try{
-            return guild.getTextChannelById(new Scanner(Paths.get("data/channels/" + guild.getId() + ".csv")).nextLine().split(",")[index]);
-        }catch(Exception e){
-            e.printStackTrace();
+            return (settings == null ? null : guild.getTextChannelById(settings.channel(index)));
+        }catch(NumberFormatException e){
             return null;
         }
     }
     public static String getSpecialSetting(int index, Guild guild){
-        try{
-            return new Scanner(Paths.get("data/banSettings/" + guild.getId() + ".csv")).nextLine().split(",")[index];
-        }catch(Exception e){
-            return "-1";
-        }
+        GuildSettings settings = GuildSettings.of(guild);
+        return (settings == null ? "-1" : settings.setting(index));
     }
     public static int boolToInt(boolean bool){
         return Boolean.compare(bool, false);
@@ -702,9 +700,15 @@ public class Bot extends ListenerAdapter{
         logger.debug("Private message was used. The private messaging function appears to be broken.");
     }
     public static void specialMessage(int channel, Guild guild, String message){
-        getSpecialChannel(channel, guild).sendMessage(message).queue();
+        specialMessage(channel, guild, message, (channel == 2 ? Outbox.URGENT : Outbox.NORMAL));
         // 0 - main chat, 1 - announcement chat, 2 - staff chat, 3 - logging chat, 4 - rules chat
     }
+    public static void specialMessage(int channel, Guild guild, String message, int priority){ // merged with other messages to the same channel, see Outbox
+        TextChannel target = getSpecialChannel(channel, guild);
+        if(target != null){
+            Outbox.send(target, priority, message);
+        }
+    }
     public static int processDuration(String duration){
         try{
             double time = (Double.parseDouble(duration.substring(0, duration.length()-1)));
@@ -723,7 +727,7 @@ public class Bot extends ListenerAdapter{
     }
     public static void reloadFile(Guild guild, String dir, int zeroes){
         try{
-            String name = "data/"+dir+"/"+guild.getId()+".csv";
+            String name = DATA+"/"+dir+"/"+guild.getId()+".csv";
             boolean flag = new File(name).createNewFile();
             if(flag && zeroes!=0){
                 PrintWriter writer = new PrintWriter(name);
@@ -737,11 +741,18 @@ public class Bot extends ListenerAdapter{
         }catch(Exception ignored){}
     }
     public static void reloadFiles(Guild guild){
-        reloadFile(guild, "channels", 5);
-        // 0 - main chat, 1 - announcement chat, 2 - staff chat, 3 - logging chat, 4 - rules chat
+        reloadFile(guild, "channels", GuildSettings.CHANNEL_COUNT);
+        // 0 - main chat, 1 - announcement chat, 2 - staff chat, 3 - logging chat, 4 - rules chat, 5 - auto-translate chat
         reloadFile(guild, "banSettings", 5);
         // 0 - number of hours, 1 - announcement in main chat, 2 - DM to banned user
         reloadFile(guild, "banList", 0);
         reloadFile(guild, "appeals", 0);
+        try{
+            Storage.migrate(guild.getId()); // banList and appeals become journaled tables, see Storage
+            BanIndex.rebuild(guild.getId());
+            BanIndex.seed(guild);
+        }catch(Exception e){
+            logger.error("Unable to open the ban list or appeals of server {}.", guild.getName());
+        }
     }
 }
@@ -0,0 +1,239 @@
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.exceptions.HierarchyException;
+import net.dv8tion.jda.api.exceptions.InsufficientPermissionException;
+import net.dv8tion.jda.api.exceptions.RateLimitedException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.requests.restaction.AuditableRestAction;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// /massban and /masskick: many targets per command, a bounded number of requests in flight, one journal write and one reply
+// jda already waits for the rate limit bucket of each route, the semaphore keeps a batch from crowding out every other request
+public final class BulkModeration{
+    static final int MAX_TARGETS = 1000;
+    static final int CONCURRENCY = 5; // requests of one batch in flight
+    static final int MAX_ATTEMPTS = 4;
+    static final long RETRY_DELAY = 1000; // [ms] before the first retry of a failed request, doubled for every further one
+    static final long PROGRESS_INTERVAL = 3; // [s] between edits of the reply
+    static final long MEMBER_SEARCH_TIMEOUT = 30; // [s]
+    static final Pattern USER_ID = Pattern.compile("\\d{17,20}"); // bare ids and mentions alike
+    private final Guild guild;
+    private final boolean ban;
+    private final String reason;
+    private final int deletionLength; // [h]
+    private final int total;
+    private final Semaphore permits = new Semaphore(CONCURRENCY);
+    private final CountDownLatch finished;
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger missing = new AtomicInteger(); // unknown users, or members that already left
+    private final AtomicInteger retries = new AtomicInteger();
+    private final Queue<Long> failed = new ConcurrentLinkedQueue<>();
+    private final Queue<Storage.Ban> bans = new ConcurrentLinkedQueue<>();
+    private final BlockingQueue<Job> jobs = new LinkedBlockingQueue<>();
+    private record Job(long userId, int attempt){}
+    private BulkModeration(Guild guild, boolean ban, String reason, int deletionLength, int total){
+        this.guild = guild;
+        this.ban = ban;
+        this.reason = reason;
+        this.deletionLength = deletionLength;
+        this.total = total;
+        this.finished = new CountDownLatch(total);
+    }
+    public static void massbanCommand(SlashCommandInteractionEvent event){
+        run(event, true);
+    }
+    public static void masskickCommand(SlashCommandInteractionEvent event){
+        run(event, false);
+    }
+    private static void run(SlashCommandInteractionEvent event, boolean ban){ // on the blocking command pool, the batch is awaited here
+        if(!event.getMember().hasPermission(ban ? Permission.BAN_MEMBERS : Permission.KICK_MEMBERS)){
+            Bot.insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        if(event.getOption("users") == null && event.getOption("joined") == null){
+            event.reply("Provide user IDs or mentions, or the number of minutes to look back for new members.").setEphemeral(true).queue();
+            return;
+        }
+        event.deferReply(true).queue();
+        Guild guild = event.getGuild();
+        Set<Long> targets;
+        try{
+            targets = targets(event);
+        }catch(RuntimeException e){
+            Bot.logger.error("User {} was unable to list the new members of server {}.", event.getMember().getId(), guild.getName(), e);
+            event.getHook().editOriginal("Unable to list the new members of this server. Try again later.").queue();
+            return;
+        }
+        targets.remove(event.getMember().getIdLong());
+        targets.remove(guild.getSelfMember().getIdLong());
+        targets.remove(guild.getOwnerIdLong());
+        if(targets.isEmpty()){
+            event.getHook().editOriginal("No users matched.").queue();
+            return;
+        }
+        if(targets.size() > MAX_TARGETS){
+            event.getHook().editOriginal(String.format("%d users matched, at most %d can be handled at once.", targets.size(), MAX_TARGETS)).queue();
+            return;
+        }
+        String reason = (event.getOption("reason") != null ? event.getOption("reason").getAsString() : "");
+        int deletionLength = (event.getOption("deletiontime") != null ? Math.max(0, Math.min(Bot.MESSAGE_DELETION_LENGTH, event.getOption("deletiontime").getAsInt())) : Bot.MESSAGE_DELETION_LENGTH);
+        BulkModeration batch = new BulkModeration(guild, ban, reason, deletionLength, targets.size());
+        long start = System.nanoTime();
+        ScheduledFuture<?> progress = Bot.scheduler.scheduleWithFixedDelay(() -> event.getHook().editOriginal(batch.progress()).queue(), PROGRESS_INTERVAL, PROGRESS_INTERVAL, TimeUnit.SECONDS);
+        try{
+            batch.execute(targets);
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }finally{
+            progress.cancel(false);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if(ban && !batch.bans.isEmpty()){ // one journal append for the whole batch, appeals are timed as for /ban
+            List<Storage.Ban> rows = new ArrayList<>(batch.bans);
+            Storage.bans(guild.getId()).putAll(rows);
+            for(Storage.Ban row : rows){
+                AppealTimers.scheduleOpen(guild.getId(), row);
+            }
+            if(Bot.getSpecialSetting(1, guild).equals("1")){
+                Bot.specialMessage(0, guild, rows.size() + " users have been banned from " + guild.getName() + ".");
+            }
+        }
+        Metrics.counter("bot_bulk_moderation_total", "action", (ban ? "ban" : "kick")).add(batch.succeeded.get());
+        Bot.logger.event((ban ? "massban" : "masskick"), "guild", guild.getId(), "moderator", event.getMember().getId(), "requested", batch.total, "succeeded", batch.succeeded.get(),
+                "missing", batch.missing.get(), "failed", batch.failed.size(), "retries", batch.retries.get(), "seconds", String.format(Locale.US, "%.1f", seconds), "reason", reason);
+        event.getHook().editOriginal(batch.summary(seconds)).queue();
+    }
+    static Set<Long> targets(SlashCommandInteractionEvent event){ // ids in the order given, then members who joined within the last "joined" minutes
+        Set<Long> targets = new LinkedHashSet<>();
+        if(event.getOption("users") != null){
+            Matcher matcher = USER_ID.matcher(event.getOption("users").getAsString());
+            while(matcher.find()){
+                try{
+                    targets.add(Long.parseLong(matcher.group()));
+                }catch(NumberFormatException e){
+                    // longer than a snowflake, not an id
+                }
+            }
+        }
+        if(event.getOption("joined") != null){
+            OffsetDateTime since = OffsetDateTime.now().minusMinutes(Math.max(0, event.getOption("joined").getAsLong()));
+            // the lean member cache does not hold everyone, so the members are requested from discord
+            List<Member> members = event.getGuild().findMembers(member -> member.getTimeJoined().isAfter(since) && !member.getUser().isBot()).setTimeout(MEMBER_SEARCH_TIMEOUT, TimeUnit.SECONDS).get();
+            for(Member member : members){
+                targets.add(member.getIdLong());
+            }
+        }
+        return targets;
+    }
+    private void execute(Set<Long> targets) throws InterruptedException{
+        for(long userId : targets){
+            jobs.add(new Job(userId, 1));
+        }
+        while(finished.getCount() > 0){
+            Job job = jobs.poll(100, TimeUnit.MILLISECONDS); // retries come back once their delay has passed
+            if(job != null){
+                permits.acquire(); // released when the request finishes, also before waiting for a retry
+                submit(job.userId(), job.attempt());
+            }
+        }
+    }
+    private void submit(long userId, int attempt){
+        AuditableRestAction<Void> action;
+        try{
+            action = (ban ? guild.ban(UserSnowflake.fromId(userId), deletionLength, TimeUnit.HOURS) : guild.kick(UserSnowflake.fromId(userId)));
+        }catch(HierarchyException | InsufficientPermissionException e){
+            done(userId, false);
+            return;
+        }
+        action.reason(reason).queue(
+            (success) -> {
+                if(ban){
+                    BanIndex.add(guild.getId(), userId);
+                    bans.add(new Storage.Ban(Long.toString(userId), reason.replace('\n', ' '), (int) (System.currentTimeMillis() / 1000)));
+                }else{
+                    VerificationIndex.untrack(guild, userId);
+                }
+                Bot.logger.event((ban ? "ban" : "kick"), "guild", guild.getId(), "user", userId, "batch", true);
+                succeeded.incrementAndGet();
+                done(userId, true);
+            },
+            (failure) -> {
+                long delay = retryDelay(failure, attempt);
+                if(delay >= 0){ // other users go ahead while this one waits
+                    retries.incrementAndGet();
+                    permits.release();
+                    Bot.scheduler.schedule(() -> jobs.add(new Job(userId, attempt + 1)), delay, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                if(failure instanceof ErrorResponseException error && (error.getErrorResponse() == ErrorResponse.UNKNOWN_USER || error.getErrorResponse() == ErrorResponse.UNKNOWN_MEMBER)){
+                    missing.incrementAndGet();
+                    done(userId, true);
+                }else{
+                    done(userId, false);
+                }
+            }
+        );
+    }
+    private void done(long userId, boolean handled){
+        if(!handled){
+            failed.add(userId);
+        }
+        permits.release();
+        finished.countDown();
+    }
+    static long retryDelay(Throwable failure, int attempt){ // [ms], -1 - not worth retrying
+        if(attempt >= MAX_ATTEMPTS){
+            return -1;
+        }
+        if(failure instanceof RateLimitedException limited){
+            return limited.getRetryAfter();
+        }
+        if(failure instanceof ErrorResponseException error && !error.isServerError()){
+            return -1; // missing permissions, unknown users and the like do not go away
+        }
+        return RETRY_DELAY << (attempt - 1); // server errors and timeouts
+    }
+    private String progress(){
+        int done = total - (int) finished.getCount();
+        return String.format("%s: %d/%d done, %d retried.", (ban ? "Banning" : "Kicking"), done, total, retries.get());
+    }
+    private String summary(double seconds){
+        StringBuilder builder = new StringBuilder(String.format(Locale.US, "%s %d of %d users in %.1f s.", (ban ? "Banned" : "Kicked"), succeeded.get(), total, seconds));
+        if(missing.get() > 0){
+            builder.append(String.format(" %d were not found%s.", missing.get(), (ban ? "" : " in the server")));
+        }
+        if(!failed.isEmpty()){
+            builder.append(String.format(" %d failed (missing permissions or a higher role):", failed.size()));
+            int listed = 0;
+            for(long userId : failed){
+                if(listed++ == 20){
+                    builder.append(" ...");
+                    break;
+                }
+                builder.append(" <@").append(userId).append('>');
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,147 @@
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// slash command definitions and their handlers, blocking handlers run off the jda event thread
+public final class CommandRegistry{
+    static final int BLOCKING_THREADS = 32; // platform threads used when virtual threads are unavailable
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final ExecutorService blockingExecutor = createBlockingExecutor();
+    private final AtomicLong firstCommandMillis = new AtomicLong(); // [ms] after jvm start, 0 until a command completed
+    public static final class Entry{
+        final SlashCommandData data;
+        final boolean blocking;
+        final SlashCommandHandler handler;
+        final Metrics.Histogram latency;
+        final Metrics.Counter errors;
+        Entry(SlashCommandData data, boolean blocking, SlashCommandHandler handler){
+            this.data = data;
+            this.blocking = blocking;
+            this.handler = handler;
+            this.latency = Metrics.histogram("bot_command_duration_seconds", "command", data.getName());
+            this.errors = Metrics.counter("bot_command_errors_total", "command", data.getName());
+        }
+        public String name(){
+            return data.getName();
+        }
+        public Metrics.Histogram latency(){
+            return latency;
+        }
+        public long errors(){
+            return errors.get();
+        }
+    }
+    public CommandRegistry register(SlashCommandData data, boolean blocking, SlashCommandHandler handler){
+        entries.put(data.getName(), new Entry(data, blocking, handler));
+        return this;
+    }
+    public List<SlashCommandData> definitions(){
+        List<SlashCommandData> definitions = new ArrayList<>();
+        for(Entry entry : entries.values()){
+            definitions.add(entry.data);
+        }
+        return definitions;
+    }
+    public List<Entry> entries(){
+        return new ArrayList<>(entries.values());
+    }
+    public String hash(String applicationId){ // sha-256 of the definitions as discord receives them, keys sorted
+        StringBuilder builder = new StringBuilder(applicationId);
+        for(Entry entry : entries.values()){
+            builder.append('\n');
+            appendCanonical(builder, entry.data.toData().toMap());
+        }
+        try{
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(builder.toString().getBytes(StandardCharsets.UTF_8)));
+        }catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+    }
+    private static void appendCanonical(StringBuilder builder, Object value){
+        if(value instanceof Map<?, ?> map){
+            builder.append('{');
+            for(Map.Entry<?, ?> i : new TreeMap<>(map).entrySet()){
+                builder.append(i.getKey()).append(':');
+                appendCanonical(builder, i.getValue());
+                builder.append(',');
+            }
+            builder.append('}');
+        }else if(value instanceof Collection<?> list){
+            builder.append('[');
+            for(Object i : list){
+                appendCanonical(builder, i);
+                builder.append(',');
+            }
+            builder.append(']');
+        }else{
+            builder.append('"').append(value).append('"');
+        }
+    }
+    public long firstCommandMillis(){
+        return firstCommandMillis.get();
+    }
+    public int queuedBlocking(){
+        return (blockingExecutor instanceof ThreadPoolExecutor executor ? executor.getQueue().size() : 0);
+    }
+    public void dispatch(SlashCommandInteractionEvent event){
+        Entry entry = entries.get(event.getName());
+        if(entry == null){
+            Bot.logger.warn("Received unknown command {}.", event.getName());
+            return;
+        }
+        if(entry.blocking){
+            blockingExecutor.execute(() -> run(entry, event));
+        }else{
+            run(entry, event);
+        }
+    }
+    private void run(Entry entry, SlashCommandInteractionEvent event){
+        long start = System.nanoTime();
+        try{
+            entry.handler.handle(event);
+        }catch(Exception e){
+            entry.errors.increment();
+            Bot.logger.error("User {} encountered an unexpected ERROR while using {}.", event.getUser().getId(), entry.name().toUpperCase(), e);
+            if(!event.isAcknowledged()){
+                event.reply("An unexpected error has occurred. Contact the developer.").setEphemeral(true).queue();
+            }
+        }finally{
+            entry.latency.record(System.nanoTime() - start);
+            if(firstCommandMillis.get() == 0 && firstCommandMillis.compareAndSet(0, ManagementFactory.getRuntimeMXBean().getUptime())){
+                Bot.logger.info("First command served {} ms after start.", firstCommandMillis.get());
+            }
+        }
+    }
+    private static ExecutorService createBlockingExecutor(){
+        try{ // virtual threads are used as soon as the bot runs on java 21
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }catch(ReflectiveOperationException e){
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(BLOCKING_THREADS, BLOCKING_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "command-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
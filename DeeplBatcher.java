@@ -0,0 +1,146 @@
+import net.dv8tion.jda.api.utils.data.DataArray;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// micro-batching in front of deepl: texts for the same language pair that arrive within BATCH_WAIT ms share one request,
+// deepl takes up to 50 texts and 128 KiB per request and answers them in order
+public final class DeeplBatcher{
+    static final int MAX_TEXTS = 50; // per request, deepl's limit
+    static final int MAX_BODY = 128*1024; // [bytes] of a request, deepl's limit
+    static final int BATCH_SIZE = Math.max(1, Math.min(MAX_TEXTS, Integer.parseInt(System.getenv().getOrDefault("DEEPL_BATCH_SIZE", "50"))));
+    static final long BATCH_WAIT = Long.parseLong(System.getenv().getOrDefault("DEEPL_BATCH_WAIT", "5")); // [ms] added to the first text of a batch, 0 - no batching
+    private static final Map<Pair, Batch> open = new HashMap<>(); // guarded by the class
+    private static final Metrics.Counter texts = Metrics.counter("bot_deepl_batching_total", "stage", "texts");
+    private static final Metrics.Counter requests = Metrics.counter("bot_deepl_batching_total", "stage", "requests");
+    private static final Metrics.Counter saved = Metrics.counter("bot_deepl_batching_total", "stage", "saved"); // upstream calls that batching made unnecessary
+    private record Pair(String source, String target){}
+    private static final class Batch{
+        final Pair pair;
+        final List<String> texts = new ArrayList<>();
+        final List<CompletableFuture<String>> waiting = new ArrayList<>();
+        int bytes;
+        ScheduledFuture<?> timer;
+        Batch(Pair pair){
+            this.pair = pair;
+            this.bytes = form(pair, List.of()).length();
+        }
+    }
+    private DeeplBatcher(){}
+    public static CompletableFuture<String> translate(String encodedText, String source, String target){ // text already url encoded, source "" - detected
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Pair pair = new Pair(source, target);
+        texts.increment();
+        if(BATCH_WAIT <= 0 || BATCH_SIZE == 1){
+            Batch single = new Batch(pair);
+            add(single, encodedText, result);
+            send(single);
+            return result;
+        }
+        Batch full = null;
+        Batch ready = null;
+        synchronized(DeeplBatcher.class){
+            Batch batch = open.get(pair);
+            if(batch != null && batch.bytes + encodedText.length() + 6 > MAX_BODY){ // "&text=" - the open batch goes first, this text starts the next one
+                open.remove(pair);
+                batch.timer.cancel(false);
+                full = batch;
+                batch = null;
+            }
+            if(batch == null){
+                Batch created = new Batch(pair);
+                created.timer = Bot.scheduler.schedule(() -> expire(created), BATCH_WAIT, TimeUnit.MILLISECONDS);
+                open.put(pair, created);
+                batch = created;
+            }
+            add(batch, encodedText, result);
+            if(batch.texts.size() >= BATCH_SIZE){
+                open.remove(pair);
+                batch.timer.cancel(false);
+                ready = batch;
+            }
+        }
+        if(full != null){
+            send(full);
+        }
+        if(ready != null){
+            send(ready);
+        }
+        return result;
+    }
+    public static String stats(){
+        return String.format("%d texts in %d requests, %d saved", texts.get(), requests.get(), saved.get());
+    }
+    private static void add(Batch batch, String encodedText, CompletableFuture<String> result){
+        batch.texts.add(encodedText);
+        batch.waiting.add(result);
+        batch.bytes += encodedText.length() + 6;
+    }
+    private static void expire(Batch batch){
+        synchronized(DeeplBatcher.class){
+            if(open.get(batch.pair) != batch){ // already sent because it filled up
+                return;
+            }
+            open.remove(batch.pair);
+        }
+        send(batch);
+    }
+    private static void send(Batch batch){
+        requests.increment();
+        saved.add(batch.texts.size() - 1);
+        HttpRequest request = Http.request(Http.DEEPL_URL + "/v2/translate")
+                .header("Authorization", String.format("DeepL-Auth-Key %s", System.getenv("DEEPL")))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form(batch.pair, batch.texts))).build();
+        Http.send(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            if(response.statusCode() != 200){
+                throw new CompletionException(new IOException("DeepL responded with " + response.statusCode()));
+            }
+            return parse(response.body(), batch.texts.size());
+        }).whenComplete((translations, error) -> {
+            for(int i = 0; i < batch.waiting.size(); i++){
+                if(error != null){
+                    batch.waiting.get(i).completeExceptionally(error);
+                }else{
+                    batch.waiting.get(i).complete(translations.get(i));
+                }
+            }
+        });
+    }
+    static String form(Pair pair, List<String> encodedTexts){ // text may repeat, deepl translates each occurrence
+        StringBuilder builder = new StringBuilder("target_lang=").append(pair.target());
+        if(!pair.source().equals("")){
+            builder.append("&source_lang=").append(pair.source());
+        }
+        for(String text : encodedTexts){
+            builder.append("&text=").append(text);
+        }
+        return builder.toString();
+    }
+    static List<String> parse(String body, int expected){ // {"translations":[{"detected_source_language":"EN","text":"..."}, ...]}
+        DataArray translations;
+        try{
+            translations = DataObject.fromJson(body).getArray("translations");
+        }catch(RuntimeException e){
+            throw new CompletionException(new IOException("Malformed DeepL response", e));
+        }
+        if(translations.length() != expected){
+            throw new CompletionException(new IOException(String.format("DeepL returned %d translations for %d texts", translations.length(), expected)));
+        }
+        List<String> result = new ArrayList<>(expected);
+        for(int i = 0; i < expected; i++){
+            result.add(translations.getObject(i).getString("text"));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// dice expressions like "4d6kh3+2d8!-1", compiled once and rolled without per-die allocation
+// a leading bare number is a die as before, "20" rolls 1d20 and "6+6" 1d6+6, later numbers are constants
+public final class Dice{
+    static final int MAX_TERMS = 20;
+    static final int MAX_COUNT = 1000000000;
+    static final int MAX_SIDES = 1000000000;
+    static final int DETAIL_LIMIT = 100; // dice per term listed one by one in the output
+    static final int EXACT_LIMIT = 100000; // dice per term rolled one by one, above that the sum is sampled
+    static final int MAX_EXPLOSIONS = 100; // rerolls per exploding die
+    static final int MAX_OUTPUT = 1900; // characters, below the discord message limit
+    static final int CACHE_SIZE = 1024;
+    private static final ConcurrentHashMap<String, Dice> compiled = new ConcurrentHashMap<>();
+    private final Term[] terms;
+    // a run of dice or a constant (sides == 0), keep > 0 keeps the highest, keep < 0 the lowest
+    private record Term(int sign, int count, int sides, int keep, boolean explode){}
+    private Dice(Term[] terms){
+        this.terms = terms;
+    }
+    public static Dice compile(String expression){ // IllegalArgumentException with a user-facing message on bad input
+        Dice dice = compiled.get(expression);
+        if(dice != null){
+            return dice;
+        }
+        dice = parse(expression);
+        if(compiled.size() >= CACHE_SIZE){
+            compiled.clear();
+        }
+        compiled.put(expression, dice);
+        return dice;
+    }
+    private static Dice parse(String expression){
+        String input = expression.toLowerCase(Locale.ROOT);
+        Term[] terms = new Term[MAX_TERMS];
+        int termCount = 0;
+        int i = 0;
+        int sign = 1;
+        int length = input.length();
+        while(true){
+            while(i < length && input.charAt(i) == ' '){
+                i++;
+            }
+            if(termCount == MAX_TERMS){
+                throw new IllegalArgumentException("Too many terms, at most " + MAX_TERMS + " are allowed.");
+            }
+            int start = i;
+            long count = 0;
+            while(i < length && Character.isDigit(input.charAt(i))){
+                count = Math.min(count*10 + (input.charAt(i++) - '0'), Integer.MAX_VALUE + 1L);
+            }
+            boolean hasCount = (i > start);
+            boolean isDie = (i < length && input.charAt(i) == 'd');
+            long sides = 0;
+            if(isDie){
+                i++;
+                while(i < length && Character.isDigit(input.charAt(i))){
+                    sides = Math.min(sides*10 + (input.charAt(i++) - '0'), Integer.MAX_VALUE + 1L);
+                }
+                if(!hasCount){
+                    count = 1;
+                }
+            }else if(hasCount && termCount == 0){ // a leading bare number is one die with that many sides, "20" rolls a d20
+                isDie = true;
+                sides = count;
+                count = 1;
+            }
+            if(isDie){
+                if(sides < 1 || sides > MAX_SIDES){
+                    throw new IllegalArgumentException("Dice need between 1 and " + MAX_SIDES + " sides.");
+                }
+                if(count < 1 || count > MAX_COUNT){
+                    throw new IllegalArgumentException("Roll between 1 and " + MAX_COUNT + " dice at once.");
+                }
+                int keep = 0;
+                boolean explode = false;
+                while(i < length && (input.charAt(i) == 'k' || input.charAt(i) == '!')){
+                    if(input.charAt(i) == '!'){
+                        explode = true;
+                        i++;
+                        continue;
+                    }
+                    i++;
+                    boolean lowest = (i < length && input.charAt(i) == 'l');
+                    if(i < length && (input.charAt(i) == 'h' || input.charAt(i) == 'l')){
+                        i++;
+                    }
+                    long kept = 0;
+                    int keptStart = i;
+                    while(i < length && Character.isDigit(input.charAt(i))){
+                        kept = Math.min(kept*10 + (input.charAt(i++) - '0'), Integer.MAX_VALUE + 1L);
+                    }
+                    if(i == keptStart || kept < 1 || kept > count){
+                        throw new IllegalArgumentException("Keep between 1 and the number of dice rolled.");
+                    }
+                    keep = (int) (lowest ? -kept : kept);
+                }
+                if(explode && sides == 1){
+                    throw new IllegalArgumentException("A one-sided die cannot explode.");
+                }
+                if((explode || keep != 0) && count > EXACT_LIMIT){
+                    throw new IllegalArgumentException("Keeping or exploding works with at most " + EXACT_LIMIT + " dice.");
+                }
+                terms[termCount++] = new Term(sign, (int) count, (int) sides, keep, explode);
+            }else if(hasCount){
+                if(count > MAX_COUNT){
+                    throw new IllegalArgumentException("Constants can be at most " + MAX_COUNT + ".");
+                }
+                terms[termCount++] = new Term(sign, (int) count, 0, 0, false);
+            }else{
+                throw new IllegalArgumentException("Wrong format!");
+            }
+            while(i < length && input.charAt(i) == ' '){
+                i++;
+            }
+            if(i == length){
+                break;
+            }
+            char operator = input.charAt(i++);
+            if(operator != '+' && operator != '-'){
+                throw new IllegalArgumentException("Wrong format!");
+            }
+            sign = (operator == '+' ? 1 : -1);
+        }
+        return new Dice(Arrays.copyOf(terms, termCount));
+    }
+    public String roll(){ // the discord reply, always below the message limit
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder output = new StringBuilder(128);
+        long total = 0;
+        int[] rolls = null; // reused between terms
+        for(Term term : terms){
+            if(term.sides == 0){
+                total += (long) term.sign*term.count;
+                continue;
+            }
+            output.append(term.sign < 0 ? "-" : "").append(term.count).append('d').append(term.sides);
+            if(term.keep != 0){
+                output.append(term.keep > 0 ? "kh" : "kl").append(Math.abs(term.keep));
+            }
+            output.append(term.explode ? "!: " : ": ");
+            long sum;
+            if(term.count > EXACT_LIMIT){
+                sum = sampleSum(random, term.count, term.sides);
+                output.append("sum sampled from the distribution of ").append(term.count).append(" dice");
+            }else if(term.keep == 0 && term.count > DETAIL_LIMIT){
+                sum = 0;
+                for(int j = 0; j < term.count; j++){
+                    sum += rollDie(random, term.sides, term.explode);
+                }
+                output.append(term.count).append(" dice, average ").append(String.format(Locale.US, "%.2f", (double) sum/term.count));
+            }else{
+                if(rolls == null || rolls.length < term.count){
+                    rolls = new int[Math.max(term.count, DETAIL_LIMIT)];
+                }
+                for(int j = 0; j < term.count; j++){
+                    rolls[j] = rollDie(random, term.sides, term.explode);
+                }
+                sum = keptSum(rolls, term.count, term.keep);
+                if(term.count <= DETAIL_LIMIT){
+                    for(int j = 0; j < term.count; j++){
+                        output.append(j == 0 ? "" : ", ").append(rolls[j]);
+                    }
+                }else{
+                    output.append(term.count).append(" dice");
+                }
+                if(term.keep != 0){
+                    output.append(" (kept ").append(sum).append(')');
+                }
+            }
+            total += term.sign*sum;
+            output.append('\n');
+            if(output.length() > MAX_OUTPUT){
+                output.setLength(0);
+                output.append("Too many dice to list.\n");
+            }
+        }
+        long constant = 0;
+        for(Term term : terms){
+            if(term.sides == 0){
+                constant += (long) term.sign*term.count;
+            }
+        }
+        if(constant != 0){
+            output.append(constant > 0 ? "(+" : "(").append(constant).append(")\n");
+        }
+        return output.append("**Total: ").append(total).append(" **").toString();
+    }
+    private static int rollDie(ThreadLocalRandom random, int sides, boolean explode){
+        int value = random.nextInt(sides) + 1;
+        if(!explode){
+            return value;
+        }
+        int sum = value;
+        for(int i = 0; i < MAX_EXPLOSIONS && value == sides; i++){
+            value = random.nextInt(sides) + 1;
+            sum += value;
+        }
+        return sum;
+    }
+    private static long keptSum(int[] rolls, int count, int keep){
+        if(keep == 0){
+            long sum = 0;
+            for(int j = 0; j < count; j++){
+                sum += rolls[j];
+            }
+            return sum;
+        }
+        int[] sorted = Arrays.copyOf(rolls, count); // rolls keeps the original order for the output
+        Arrays.sort(sorted);
+        long sum = 0;
+        int kept = Math.abs(keep);
+        for(int j = 0; j < kept; j++){
+            sum += (keep > 0 ? sorted[count - 1 - j] : sorted[j]);
+        }
+        return sum;
+    }
+    private static long sampleSum(ThreadLocalRandom random, int count, int sides){
+        // central limit theorem, a sum of uniform dice is close to normal long before EXACT_LIMIT
+        double mean = count*(sides + 1.0)/2.0;
+        double deviation = Math.sqrt(count*((double) sides*sides - 1.0)/12.0);
+        long sum = Math.round(mean + deviation*random.nextGaussian());
+        return Math.max(count, Math.min((long) count*sides, sum));
+    }
+}
@@ -0,0 +1,145 @@
+import net.dv8tion.jda.api.entities.Guild;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+// immutable snapshot of data/channels/<guild>.csv and data/banSettings/<guild>.csv, cached per guild
+public final class GuildSettings{
+    static final int CHANNEL_COUNT = 6;
+    private static final ConcurrentHashMap<String, GuildSettings> cache = new ConcurrentHashMap<>();
+    final String[] channels; // 0 - main chat, 1 - announcement chat, 2 - staff chat, 3 - logging chat, 4 - rules chat, 5 - auto-translate chat
+    final int appealTime; // [s], 0 - appeals disabled
+    final boolean announceInMain;
+    final boolean announceInDm;
+    final int verifyTime; // [s], 0 - verification disabled
+    final String verifyRole;
+    GuildSettings(String[] channels, int appealTime, boolean announceInMain, boolean announceInDm, int verifyTime, String verifyRole){
+        this.channels = channels;
+        this.appealTime = appealTime;
+        this.announceInMain = announceInMain;
+        this.announceInDm = announceInDm;
+        this.verifyTime = verifyTime;
+        this.verifyRole = verifyRole;
+    }
+    public static GuildSettings of(Guild guild){ // no I/O after the first call for a guild
+        return of(guild.getId());
+    }
+    public static GuildSettings of(String guildId){
+        GuildSettings settings = cache.get(guildId);
+        if(settings != null){
+            return settings;
+        }
+        try{
+            return cache.computeIfAbsent(guildId, id -> {
+                try{
+                    return load(id);
+                }catch(IOException e){
+                    throw new IllegalStateException(e);
+                }
+            });
+        }catch(IllegalStateException e){
+            return null; // not cached, so the next call retries once the files exist
+        }
+    }
+    public static void invalidate(Guild guild){
+        cache.remove(guild.getId());
+    }
+    public static boolean update(Guild guild, UnaryOperator<GuildSettings> change){ // write-through, files are replaced atomically
+        boolean[] success = {false};
+        cache.compute(guild.getId(), (id, current) -> {
+            try{
+                GuildSettings old = (current == null ? load(id) : current);
+                GuildSettings updated = change.apply(old);
+                if(!Arrays.equals(old.channels, updated.channels)){
+                    writeAtomically(channelsPath(id), String.join(",", updated.channels));
+                }
+                if(!Arrays.equals(old.banSettingsRow(), updated.banSettingsRow())){
+                    writeAtomically(banSettingsPath(id), String.join(",", updated.banSettingsRow()));
+                }
+                success[0] = true;
+                return updated;
+            }catch(IOException | RuntimeException e){
+                Bot.logger.error("Unable to save settings of server {}.", id);
+                return current;
+            }
+        });
+        return success[0];
+    }
+    static GuildSettings load(String guildId) throws IOException{
+        long start = System.nanoTime();
+        String[] channels = Arrays.copyOf(firstLine(channelsPath(guildId)).split(","), CHANNEL_COUNT);
+        for(int i = 0; i < CHANNEL_COUNT; i++){
+            channels[i] = (channels[i] == null ? "0" : channels[i].trim());
+        }
+        String[] row = Arrays.copyOf(firstLine(banSettingsPath(guildId)).split(","), 5);
+        Metrics.time("bot_file_io_seconds", "op", "settings_load", start);
+        return new GuildSettings(channels, parseInt(row[0]), "1".equals(trim(row[1])), "1".equals(trim(row[2])), parseInt(row[3]), (row[4] == null ? "0" : row[4].trim()));
+    }
+    public String setting(int index){ // legacy string view of data/banSettings, see Bot.getSpecialSetting
+        String[] row = banSettingsRow();
+        return (index >= 0 && index < row.length ? row[index] : "-1");
+    }
+    public String channel(int index){
+        return (index >= 0 && index < CHANNEL_COUNT ? channels[index] : "0");
+    }
+    public GuildSettings withChannel(int index, String channelId){
+        String[] newChannels = channels.clone();
+        newChannels[index] = channelId;
+        return new GuildSettings(newChannels, appealTime, announceInMain, announceInDm, verifyTime, verifyRole);
+    }
+    public GuildSettings withAppealTime(int seconds){
+        return new GuildSettings(channels, seconds, announceInMain, announceInDm, verifyTime, verifyRole);
+    }
+    public GuildSettings withBanMessages(boolean main, boolean dm){
+        return new GuildSettings(channels, appealTime, main, dm, verifyTime, verifyRole);
+    }
+    public GuildSettings withVerification(int seconds, String roleId){
+        return new GuildSettings(channels, appealTime, announceInMain, announceInDm, seconds, roleId);
+    }
+    String[] banSettingsRow(){
+        // 0 - appeal time [s], 1 - announcement in main chat, 2 - DM to banned user, 3 - verification time [s], 4 - verification role
+        return new String[]{appealTime + "", Bot.boolToInt(announceInMain) + "", Bot.boolToInt(announceInDm) + "", verifyTime + "", verifyRole};
+    }
+    static Path channelsPath(String guildId){
+        return Paths.get(Bot.DATA, "channels", guildId + ".csv");
+    }
+    static Path banSettingsPath(String guildId){
+        return Paths.get(Bot.DATA, "banSettings", guildId + ".csv");
+    }
+    static void writeAtomically(Path path, String line) throws IOException{ // readers never see a half-written file
+        long start = System.nanoTime();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.writeString(temp, line + System.lineSeparator(), StandardCharsets.UTF_8);
+        try{
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }catch(java.nio.file.AtomicMoveNotSupportedException e){
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Metrics.time("bot_file_io_seconds", "op", "settings_write", start);
+    }
+    private static String firstLine(Path path) throws IOException{
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        if(lines.isEmpty()){
+            throw new IOException("Empty settings file " + path);
+        }
+        return lines.get(0);
+    }
+    private static int parseInt(String value){
+        try{
+            return Integer.parseInt(trim(value));
+        }catch(NumberFormatException e){
+            return 0;
+        }
+    }
+    private static String trim(String value){
+        return (value == null ? "" : value.trim());
+    }
+}
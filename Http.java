@@ -0,0 +1,142 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// shared non-blocking http client for outbound calls (deepl, wikipedia), with per-host limits and circuit breaking
+public final class Http{
+    static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    static final int MAX_PER_HOST = 8; // concurrent requests per host
+    static final int MAX_WAITING = 256; // queued requests per host before failing fast
+    static final int FAILURE_THRESHOLD = 5; // consecutive failures that open the circuit
+    static final long OPEN_DURATION = 30000; // [ms] a host is skipped once its circuit opens
+    // base urls can be pointed at a local stub server
+    static final String DEEPL_URL = System.getenv().getOrDefault("DEEPL_URL", "https://api-free.deepl.com");
+    static final String WIKIPEDIA_URL = System.getenv().getOrDefault("WIKIPEDIA_URL", "https://%s.wikipedia.org"); // %s - language code
+    static final HttpClient client = HttpClient.newBuilder().connectTimeout(CONNECT_TIMEOUT).followRedirects(HttpClient.Redirect.NEVER).build(); // pools keep-alive connections
+    private static final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+    public static class CircuitOpenException extends IOException{
+        private static final long serialVersionUID = 1L;
+        CircuitOpenException(String host){
+            super("Circuit open for " + host);
+        }
+    }
+    private static final class Host{
+        final String name;
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger waitingCount = new AtomicInteger();
+        final ConcurrentLinkedQueue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+        final AtomicInteger failures = new AtomicInteger();
+        volatile long openUntil = 0; // 0 - closed
+        Host(String name){
+            this.name = name;
+        }
+        boolean submit(Runnable task){
+            if(waitingCount.incrementAndGet() > MAX_WAITING){
+                waitingCount.decrementAndGet();
+                return false;
+            }
+            waiting.add(task);
+            drain();
+            return true;
+        }
+        void release(){
+            active.decrementAndGet();
+            drain();
+        }
+        private void drain(){
+            while(true){
+                int current = active.get();
+                if(current >= MAX_PER_HOST || waiting.isEmpty()){
+                    return;
+                }
+                if(!active.compareAndSet(current, current + 1)){
+                    continue;
+                }
+                Runnable task = waiting.poll();
+                if(task == null){
+                    active.decrementAndGet();
+                    continue;
+                }
+                waitingCount.decrementAndGet();
+                task.run();
+            }
+        }
+        boolean isOpen(){
+            long until = openUntil;
+            if(until == 0){
+                return false;
+            }
+            if(System.currentTimeMillis() < until){
+                return true;
+            }
+            synchronized(this){ // half-open: the next failure opens the circuit again, a success closes it
+                if(openUntil == until){
+                    openUntil = 0;
+                    failures.set(FAILURE_THRESHOLD - 1);
+                }
+            }
+            return false;
+        }
+        void record(boolean success){
+            if(success){
+                failures.set(0);
+            }else if(failures.incrementAndGet() >= FAILURE_THRESHOLD){
+                openUntil = System.currentTimeMillis() + OPEN_DURATION;
+                Bot.logger.warn("Circuit opened for host {}.", name);
+            }
+        }
+    }
+    private Http(){}
+    public static HttpRequest.Builder request(String url){
+        return HttpRequest.newBuilder(URI.create(url)).timeout(REQUEST_TIMEOUT);
+    }
+    public static <T> CompletableFuture<HttpResponse<T>> send(HttpRequest request, HttpResponse.BodyHandler<T> handler){
+        String hostName = request.uri().getAuthority();
+        Host host = hosts.computeIfAbsent(hostName, Host::new);
+        if(host.isOpen()){
+            return CompletableFuture.failedFuture(new CircuitOpenException(hostName));
+        }
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        long start = System.nanoTime();
+        boolean queued = host.submit(() -> {
+            CompletableFuture<HttpResponse<T>> call;
+            try{
+                call = client.sendAsync(request, handler);
+            }catch(RuntimeException e){
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((response, error) -> {
+                boolean success = (error == null && response.statusCode() < 500);
+                Metrics.time("bot_http_request_seconds", "host", hostName, start);
+                if(!success){
+                    Metrics.counter("bot_http_errors_total", "host", hostName).increment();
+                }
+                host.record(success);
+                host.release();
+                if(error != null){
+                    result.completeExceptionally(error);
+                }else{
+                    result.complete(response);
+                }
+            });
+        });
+        if(!queued){
+            result.completeExceptionally(new IOException("Too many queued requests for " + hostName));
+        }
+        return result;
+    }
+    public static Throwable rootCause(Throwable error){
+        while(error.getCause() != null && error.getCause() != error){
+            error = error.getCause();
+        }
+        return error;
+    }
+}
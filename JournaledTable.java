@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// keyed rows of one guild: a CSV snapshot plus an append-only journal of changes since the last compaction
+public class JournaledTable<R>{
+    static final int MIN_COMPACTION_OPS = 1024; // journal entries tolerated before rewriting the snapshot
+    public interface Codec<R>{
+        String key(R row);
+        String encode(R row); // a single line, must start with the key
+        R decode(String line); // null for lines that cannot be parsed
+    }
+    private final Path snapshot;
+    private final Path journal;
+    private final Codec<R> codec;
+    private final LinkedHashMap<String, R> rows = new LinkedHashMap<>();
+    private FileChannel journalChannel;
+    private int journalOps = 0;
+    private volatile boolean dirty = false; // appended, but not yet forced to disk
+    public JournaledTable(Path snapshot, Codec<R> codec) throws IOException{
+        this.snapshot = snapshot;
+        this.journal = snapshot.resolveSibling(snapshot.getFileName().toString().replaceAll("\\.csv$", "") + ".journal");
+        this.codec = codec;
+        boolean migrate = load();
+        journalChannel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if(migrate){
+            compact(); // rewrites legacy CSVs (blank lines, duplicates, stray fields) in the canonical form
+        }
+    }
+    private boolean load() throws IOException{
+        long start = System.nanoTime();
+        boolean migrate = false;
+        if(Files.exists(snapshot)){
+            for(String line : Files.readAllLines(snapshot, StandardCharsets.UTF_8)){
+                R row = (line.isBlank() ? null : codec.decode(line));
+                if(row == null || !codec.encode(row).equals(line)){
+                    migrate = true;
+                }
+                if(row != null && rows.put(codec.key(row), row) != null){
+                    migrate = true;
+                }
+            }
+        }
+        if(Files.exists(journal)){
+            String content = Files.readString(journal, StandardCharsets.UTF_8);
+            int end = content.lastIndexOf('\n'); // anything after the last newline is a torn write and is dropped
+            for(String line : (end < 0 ? "" : content.substring(0, end)).split("\n")){
+                if(line.length() < 2){
+                    continue;
+                }
+                if(line.charAt(0) == '+'){
+                    R row = codec.decode(line.substring(1));
+                    if(row != null){
+                        rows.put(codec.key(row), row);
+                    }
+                }else if(line.charAt(0) == '-'){
+                    rows.remove(line.substring(1));
+                }
+                journalOps++;
+            }
+            if(end + 1 != content.length()){
+                migrate = true;
+            }
+        }
+        Metrics.time("bot_file_io_seconds", "op", "table_load", start);
+        return migrate;
+    }
+    public synchronized R get(String key){
+        return rows.get(key);
+    }
+    public synchronized List<R> rows(){
+        return new ArrayList<>(rows.values());
+    }
+    public synchronized int size(){
+        return rows.size();
+    }
+    public synchronized void put(R row){
+        putAll(List.of(row));
+    }
+    public synchronized void putAll(Collection<R> newRows){ // one journal write for the whole batch
+        StringBuilder builder = new StringBuilder();
+        for(R row : newRows){
+            rows.put(codec.key(row), row);
+            builder.append('+').append(codec.encode(row)).append('\n');
+        }
+        append(builder.toString(), newRows.size());
+    }
+    public synchronized R remove(String key){
+        R removed = rows.remove(key);
+        if(removed != null){
+            append("-" + key + "\n", 1);
+        }
+        return removed;
+    }
+    private void append(String entries, int ops){
+        long start = System.nanoTime();
+        try{
+            ByteBuffer buffer = ByteBuffer.wrap(entries.getBytes(StandardCharsets.UTF_8));
+            while(buffer.hasRemaining()){
+                journalChannel.write(buffer);
+            }
+            dirty = true;
+            journalOps += ops;
+            Metrics.time("bot_file_io_seconds", "op", "journal_append", start);
+            if(journalOps > Math.max(MIN_COMPACTION_OPS, rows.size())){
+                compact();
+            }
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+    public void flush() throws IOException{ // called by the storage flusher, batches fsyncs of all appends since the last call
+        if(dirty){
+            long start = System.nanoTime();
+            dirty = false;
+            journalChannel.force(false);
+            Metrics.time("bot_file_io_seconds", "op", "journal_fsync", start);
+        }
+    }
+    public synchronized void compact() throws IOException{
+        long start = System.nanoTime();
+        StringBuilder builder = new StringBuilder();
+        for(R row : rows.values()){
+            builder.append(codec.encode(row)).append('\n');
+        }
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer buffer = ByteBuffer.wrap(builder.toString().getBytes(StandardCharsets.UTF_8));
+            while(buffer.hasRemaining()){
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try{
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }catch(AtomicMoveNotSupportedException e){
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+        // replaying the old journal over the new snapshot is harmless, so a crash before this point loses nothing
+        journalChannel.truncate(0);
+        journalChannel.force(true);
+        journalOps = 0;
+        dirty = false;
+        Metrics.time("bot_file_io_seconds", "op", "snapshot_write", start);
+    }
+    public synchronized void close() throws IOException{
+        flush();
+        journalChannel.close();
+    }
+}
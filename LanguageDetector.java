@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// in-process language identification: naive bayes over letter n-grams of 1 to 3 characters, trained at startup from
+// data/languages/<deepl code>.txt, one sample sentence per line, so no message has to reach deepl just to learn it is english
+// the script of a message narrows the candidates first, japanese, korean and greek are settled by their script alone
+public final class LanguageDetector{
+    static final int MIN_LETTERS = 12; // shorter messages are left alone, too few n-grams for a reliable answer
+    static final int MAX_LETTERS = 300; // the start of a long message is enough
+    static final double SMOOTHING = 0.1; // added to every n-gram count
+    static final double MIN_MARGIN = 0.02; // mean log-likelihood per n-gram the best language has to lead by
+    static final int LATIN = 0, CYRILLIC = 1, GREEK = 2, HANGUL = 3, KANA_HAN = 4, SCRIPTS = 5;
+    private static final char BOUNDARY = ' ';
+    private final String[] languages;
+    private final int[] scripts; // main script of each language
+    private final long[] keys; // open addressing, 0 - empty, see key()
+    private final int[] rows; // index of the first weight of an n-gram
+    private final float[] weights; // log P(n-gram | language), one row of languages.length per n-gram
+    public LanguageDetector(Map<String, List<String>> samples){ // language code -> sample sentences
+        Map<String, List<String>> sorted = new TreeMap<>(samples);
+        languages = sorted.keySet().toArray(new String[0]);
+        scripts = new int[languages.length];
+        int count = languages.length;
+        Map<Long, double[]> counts = new HashMap<>();
+        double[] totals = new double[count];
+        for(int l = 0; l < count; l++){
+            int[] letters = new int[SCRIPTS];
+            int language = l;
+            for(String sample : sorted.get(languages[l])){
+                grams(sample, letters, Integer.MAX_VALUE, key -> {
+                    counts.computeIfAbsent(key, k -> new double[count])[language]++;
+                    totals[language]++;
+                });
+            }
+            scripts[l] = dominant(letters);
+        }
+        int capacity = Integer.highestOneBit(Math.max(16, counts.size()*2 - 1)) << 1; // load factor at most 0.5
+        keys = new long[capacity];
+        rows = new int[capacity];
+        weights = new float[counts.size()*count];
+        int row = 0;
+        for(Map.Entry<Long, double[]> entry : counts.entrySet()){
+            int i = slot(entry.getKey(), capacity - 1);
+            while(keys[i] != 0){
+                i = (i + 1) & (capacity - 1);
+            }
+            keys[i] = entry.getKey();
+            rows[i] = row;
+            for(int l = 0; l < count; l++){
+                weights[row + l] = (float) Math.log((entry.getValue()[l] + SMOOTHING) / (totals[l] + SMOOTHING*counts.size()));
+            }
+            row += count;
+        }
+    }
+    public static LanguageDetector load(Path directory) throws IOException{
+        Map<String, List<String>> samples = new HashMap<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.txt")){
+            for(Path file : files){
+                String code = file.getFileName().toString();
+                List<String> lines = new ArrayList<>();
+                for(String line : Files.readAllLines(file, StandardCharsets.UTF_8)){
+                    if(!line.isBlank()){
+                        lines.add(line);
+                    }
+                }
+                samples.put(code.substring(0, code.length() - 4).toUpperCase(), lines);
+            }
+        }
+        if(samples.isEmpty()){
+            throw new IOException("No language samples in " + directory);
+        }
+        return new LanguageDetector(samples);
+    }
+    public List<String> languages(){
+        return List.of(languages);
+    }
+    public String detect(CharSequence text){ // language code, null - too short or too close to call
+        int[] letters = new int[SCRIPTS];
+        int total = count(text, letters);
+        if(total == 0){
+            return null;
+        }
+        int script = dominant(letters);
+        int candidates = 0;
+        int only = -1;
+        for(int l = 0; l < languages.length; l++){
+            if(scripts[l] == script){
+                candidates++;
+                only = l;
+            }
+        }
+        if(candidates == 0){
+            return null;
+        }
+        if(candidates == 1){ // a few characters are enough when no other language shares the script
+            return (letters[script] >= 2 ? languages[only] : null);
+        }
+        if(letters[script] < MIN_LETTERS){
+            return null;
+        }
+        return score(text, script);
+    }
+    private String score(CharSequence text, int script){
+        float[] scores = new float[languages.length]; // float like the weights, the row sum vectorizes
+        int[] used = {0};
+        grams(text, new int[SCRIPTS], MAX_LETTERS, key -> {
+            int i = slot(key, keys.length - 1);
+            while(keys[i] != 0 && keys[i] != key){
+                i = (i + 1) & (keys.length - 1);
+            }
+            if(keys[i] == 0){ // never seen in any language, says nothing
+                return;
+            }
+            int row = rows[i];
+            for(int l = 0; l < scores.length; l++){
+                scores[l] += weights[row + l];
+            }
+            used[0]++;
+        });
+        if(used[0] == 0){
+            return null;
+        }
+        int best = -1;
+        int second = -1;
+        for(int l = 0; l < languages.length; l++){
+            if(scripts[l] != script){
+                continue;
+            }
+            if(best < 0 || scores[l] > scores[best]){
+                second = best;
+                best = l;
+            }else if(second < 0 || scores[l] > scores[second]){
+                second = l;
+            }
+        }
+        return ((scores[best] - scores[second]) / used[0] >= MIN_MARGIN ? languages[best] : null);
+    }
+    private interface GramConsumer{
+        void accept(long key);
+    }
+    private static int count(CharSequence text, int[] letters){ // letters per script
+        int total = 0;
+        for(int i = 0; i < text.length() && total < MAX_LETTERS; i++){
+            char c = text.charAt(i);
+            int script = script(c);
+            if(script >= 0){
+                letters[script]++;
+                total++;
+            }
+        }
+        return total;
+    }
+    private static void grams(CharSequence text, int[] letters, int maxLetters, GramConsumer consumer){ // lowercase letter n-grams, words padded with one boundary
+        char previous = BOUNDARY;
+        char beforePrevious = 0; // 0 - start of text
+        int seen = 0;
+        for(int i = 0; i <= text.length() && seen < maxLetters; i++){
+            char c = (i < text.length() ? text.charAt(i) : BOUNDARY);
+            int script = script(c);
+            if(script < 0){
+                c = BOUNDARY;
+                if(previous == BOUNDARY){ // runs of non-letters count as one boundary
+                    continue;
+                }
+            }else{
+                c = Character.toLowerCase(c);
+                letters[script]++;
+                seen++;
+                consumer.accept(key((char) 0, (char) 0, c));
+            }
+            consumer.accept(key((char) 0, previous, c));
+            if(beforePrevious != 0){
+                consumer.accept(key(beforePrevious, previous, c));
+            }
+            beforePrevious = previous;
+            previous = c;
+        }
+    }
+    static int script(char c){ // -1 - not a letter of a supported script
+        if(c < 0x80){
+            return ((c | 0x20) >= 'a' && (c | 0x20) <= 'z' ? LATIN : -1);
+        }
+        if(!Character.isLetter(c)){
+            return -1;
+        }
+        if(c < 0x250 || (c >= 0x1E00 && c < 0x1F00)){
+            return LATIN;
+        }
+        if(c >= 0x370 && c < 0x400 || c >= 0x1F00 && c < 0x2000){
+            return GREEK;
+        }
+        if(c >= 0x400 && c < 0x530){
+            return CYRILLIC;
+        }
+        if(c >= 0x1100 && c < 0x1200 || c >= 0x3130 && c < 0x3190 || c >= 0xAC00 && c < 0xD7B0){
+            return HANGUL;
+        }
+        if(c >= 0x3040 && c < 0x3100 || c >= 0x4E00 && c < 0xA000 || c >= 0xFF66 && c < 0xFFA0){
+            return KANA_HAN;
+        }
+        return -1;
+    }
+    private static int dominant(int[] letters){
+        int best = 0;
+        for(int s = 1; s < letters.length; s++){
+            if(letters[s] > letters[best]){
+                best = s;
+            }
+        }
+        return best;
+    }
+    private static long key(char first, char second, char third){ // no letter is 0, so the order is implied
+        return (long) first << 32 | (long) second << 16 | third;
+    }
+    private static int slot(long key, int mask){
+        long hash = key*0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
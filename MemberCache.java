@@ -0,0 +1,67 @@
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// which members stay on the heap: MEMBER_CACHE=all keeps every member, the default lean policy only the ones the bot acts on
+// lean keeps members waiting for the verification role (their role update ends the wait) and recent moderation targets
+public final class MemberCache{
+    static final String MODE = System.getenv("MEMBER_CACHE");
+    static final long TARGET_TIME = 600000; // [ms] a retrieved moderation target stays cached
+    static final long EVICTION_INTERVAL = 60; // [s]
+    private static final Map<Target, Long> targets = new ConcurrentHashMap<>(); // -> cached until [epoch ms]
+    private record Target(long guildId, long userId){}
+    public static final MemberCachePolicy LEAN = member -> VerificationIndex.awaitingRole(member) || (!targets.isEmpty() && targets.containsKey(new Target(member.getGuild().getIdLong(), member.getIdLong())));
+    private MemberCache(){}
+    public static MemberCachePolicy policy(){
+        return ("all".equalsIgnoreCase(MODE) ? MemberCachePolicy.ALL : LEAN);
+    }
+    public static boolean isLean(){
+        return !"all".equalsIgnoreCase(MODE);
+    }
+    public static void start(){
+        Bot.scheduler.scheduleWithFixedDelay(MemberCache::evict, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.SECONDS);
+    }
+    public static void pin(Guild guild, User user){ // before retrieveMember, so the retrieved member is cached
+        targets.put(new Target(guild.getIdLong(), user.getIdLong()), System.currentTimeMillis() + TARGET_TIME);
+    }
+    static void evict(){
+        long now = System.currentTimeMillis();
+        targets.forEach((target, until) -> {
+            if(until <= now && targets.remove(target, until)){
+                Guild guild = Shards.guild(target.guildId());
+                Member member = (guild == null ? null : guild.getMemberById(target.userId()));
+                if(member != null && isLean() && !VerificationIndex.awaitingRole(member)){
+                    guild.unloadMember(target.userId());
+                }
+            }
+        });
+    }
+    public static long cachedMembers(){
+        long count = 0;
+        for(JDA shard : Shards.all()){
+            for(Guild guild : shard.getGuildCache()){
+                count += guild.getMemberCache().size();
+            }
+        }
+        return count;
+    }
+    public static long guilds(){
+        long count = 0;
+        for(JDA shard : Shards.all()){
+            count += shard.getGuildCache().size();
+        }
+        return count;
+    }
+    public static String footprint(){ // heap per server includes everything else the bot keeps, e.g. settings and ban tables
+        long heap = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        long guilds = guilds();
+        return String.format("**Member cache (%s):** %d members in %d servers, %d pinned targets\n**Heap used:** %d MB, ~%d KB per server",
+                (isLean() ? "lean" : "all"), cachedMembers(), guilds, targets.size(), heap/1048576, heap/1024/Math.max(1, guilds));
+    }
+}
@@ -0,0 +1,168 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// lock-free counters, latency histograms and gauges, served in the prometheus text format on localhost
+public final class Metrics{
+    static final int PORT = Integer.parseInt(System.getenv().getOrDefault("METRICS_PORT", "9464")); // 0 disables the endpoint
+    static final double[] BOUNDS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10}; // [s] histogram buckets
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private record Gauge(String name, LongSupplier value){}
+    public static final class Counter{
+        final String name;
+        final String labels;
+        private final LongAdder value = new LongAdder();
+        Counter(String name, String labels){
+            this.name = name;
+            this.labels = labels;
+        }
+        public void increment(){
+            value.increment();
+        }
+        public void add(long amount){
+            value.add(amount);
+        }
+        public long get(){
+            return value.sum();
+        }
+    }
+    public static final class Histogram{
+        final String name;
+        final String labels;
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        Histogram(String name, String labels){
+            this.name = name;
+            this.labels = labels;
+            for(int i = 0; i < buckets.length; i++){
+                buckets[i] = new LongAdder();
+            }
+        }
+        public void record(long nanos){
+            double seconds = nanos/1e9;
+            int i = 0;
+            while(i < BOUNDS.length && seconds > BOUNDS[i]){
+                i++;
+            }
+            buckets[i].increment();
+            count.increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+        public long count(){
+            return count.sum();
+        }
+        public double meanMillis(){
+            long calls = count.sum();
+            return (calls == 0 ? 0 : sumNanos.sum()/1e6/calls);
+        }
+        public double maxMillis(){
+            return maxNanos.get()/1e6;
+        }
+        public double percentileMillis(double quantile){ // upper bound of the bucket holding the quantile
+            long calls = count.sum();
+            long seen = 0;
+            for(int i = 0; i < BOUNDS.length; i++){
+                seen += buckets[i].sum();
+                if(calls > 0 && seen >= quantile*calls){
+                    return BOUNDS[i]*1000;
+                }
+            }
+            return maxMillis();
+        }
+    }
+    private Metrics(){}
+    public static Histogram histogram(String name, String label, String value){
+        String labels = label + "=\"" + value + "\"";
+        return histograms.computeIfAbsent(name + "{" + labels + "}", key -> new Histogram(name, labels));
+    }
+    public static Counter counter(String name, String label, String value){
+        String labels = label + "=\"" + value + "\"";
+        return counters.computeIfAbsent(name + "{" + labels + "}", key -> new Counter(name, labels));
+    }
+    public static void gauge(String name, LongSupplier value){
+        gauges.put(name, new Gauge(name, value));
+    }
+    public static void time(String name, String label, String value, long startNanos){ // convenience for call sites with a single label
+        histogram(name, label, value).record(System.nanoTime() - startNanos);
+    }
+    public static long gaugeValue(String name){
+        Gauge gauge = gauges.get(name);
+        return (gauge == null ? -1 : gauge.value.getAsLong());
+    }
+    public static Map<String, Histogram> histograms(String name){ // label set -> histogram, sorted
+        Map<String, Histogram> result = new TreeMap<>();
+        for(Histogram histogram : histograms.values()){
+            if(histogram.name.equals(name)){
+                result.put(histogram.labels, histogram);
+            }
+        }
+        return result;
+    }
+    public static void start(){
+        if(PORT == 0){
+            return;
+        }
+        try{
+            HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), PORT), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = render().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try(OutputStream stream = exchange.getResponseBody()){
+                    stream.write(body);
+                }
+            });
+            server.start();
+            Bot.logger.info("Metrics served on http://127.0.0.1:{}/metrics.", PORT);
+        }catch(IOException e){
+            Bot.logger.warn("Unable to serve metrics on port {}.", PORT);
+        }
+    }
+    public static String render(){
+        StringBuilder builder = new StringBuilder(4096);
+        TreeMap<String, Histogram> sortedHistograms = new TreeMap<>(histograms);
+        String lastName = "";
+        for(Histogram histogram : sortedHistograms.values()){
+            if(!histogram.name.equals(lastName)){
+                builder.append("# TYPE ").append(histogram.name).append(" histogram\n");
+                lastName = histogram.name;
+            }
+            long cumulative = 0;
+            for(int i = 0; i <= BOUNDS.length; i++){
+                cumulative += histogram.buckets[i].sum();
+                builder.append(histogram.name).append("_bucket{").append(histogram.labels).append(",le=\"")
+                        .append(i == BOUNDS.length ? "+Inf" : String.format(Locale.US, "%s", BOUNDS[i])).append("\"} ").append(cumulative).append('\n');
+            }
+            builder.append(histogram.name).append("_sum{").append(histogram.labels).append("} ").append(String.format(Locale.US, "%.6f", histogram.sumNanos.sum()/1e9)).append('\n');
+            builder.append(histogram.name).append("_count{").append(histogram.labels).append("} ").append(histogram.count.sum()).append('\n');
+        }
+        lastName = "";
+        for(Counter counter : new TreeMap<>(counters).values()){
+            if(!counter.name.equals(lastName)){
+                builder.append("# TYPE ").append(counter.name).append(" counter\n");
+                lastName = counter.name;
+            }
+            builder.append(counter.name).append('{').append(counter.labels).append("} ").append(counter.get()).append('\n');
+        }
+        for(Gauge gauge : new TreeMap<>(gauges).values()){
+            builder.append("# TYPE ").append(gauge.name).append(" gauge\n").append(gauge.name).append(' ').append(gauge.value.getAsLong()).append('\n');
+        }
+        return builder.toString();
+    }
+}
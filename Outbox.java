@@ -0,0 +1,142 @@
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// outgoing messages of the special channels, merged per channel: what is produced within WINDOW ms, or while the previous
+// message of the channel is still on its way, goes out as one message of up to 2000 characters, higher priorities first
+public final class Outbox{
+    static final long WINDOW = 750; // [ms] between the first queued message and the send
+    static final int MESSAGE_LIMIT = 2000; // [chars] of a discord message
+    static final int MAX_QUEUED = 500; // per channel, beyond that the oldest message of the lowest priority is dropped
+    static final int URGENT = 0; // staff chat: appeal results, raid alerts
+    static final int NORMAL = 1; // announcements, e.g. bans
+    static final int LOW = 2; // welcomes and farewells
+    private static final ConcurrentHashMap<Long, Outbox> outboxes = new ConcurrentHashMap<>();
+    private static final AtomicLong queued = new AtomicLong(); // messages waiting in all outboxes
+    private static final Metrics.Counter messages = Metrics.counter("bot_outbound_messages_total", "stage", "queued");
+    private static final Metrics.Counter requests = Metrics.counter("bot_outbound_messages_total", "stage", "sent");
+    private static final Metrics.Counter dropped = Metrics.counter("bot_outbound_messages_total", "stage", "dropped");
+    private final long guildId;
+    private final long channelId;
+    private final List<ArrayDeque<String>> pending = List.of(new ArrayDeque<>(), new ArrayDeque<>(), new ArrayDeque<>()); // one queue per priority
+    private int size = 0;
+    private boolean busy = false; // a send is scheduled or in flight, the next one is chained to it
+    private Outbox(long guildId, long channelId){
+        this.guildId = guildId;
+        this.channelId = channelId;
+    }
+    public static void send(TextChannel channel, int priority, String text){
+        Outbox outbox = outboxes.computeIfAbsent(channel.getIdLong(), id -> new Outbox(channel.getGuild().getIdLong(), id));
+        if(outbox.add(priority, text)){
+            Shards.executor(outbox.guildId).schedule(outbox::flush, WINDOW, TimeUnit.MILLISECONDS); // the shard's thread keeps a guild's sends in order
+        }
+    }
+    public static long queued(){
+        return queued.get();
+    }
+    public static String stats(){
+        return String.format("%d queued, %d messages in %d requests, %d dropped", queued.get(), messages.get(), requests.get(), dropped.get());
+    }
+    private synchronized boolean add(int priority, String text){ // true - nothing is on its way yet, the caller schedules the send
+        if(size >= MAX_QUEUED && !dropLowest(priority)){
+            dropped.increment();
+            return false;
+        }
+        pending.get(priority).addLast(text);
+        size++;
+        queued.incrementAndGet();
+        messages.increment();
+        if(busy){
+            return false;
+        }
+        busy = true;
+        return true;
+    }
+    private boolean dropLowest(int priority){ // makes room for a message of this priority, if anything less important is queued
+        for(int i = pending.size() - 1; i >= priority; i--){
+            if(!pending.get(i).isEmpty()){
+                pending.get(i).pollFirst();
+                size--;
+                queued.decrementAndGet();
+                dropped.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+    private void flush(){
+        String text;
+        synchronized(this){
+            text = nextMessage();
+            if(text == null){
+                busy = false;
+                return;
+            }
+        }
+        Guild guild = Shards.guild(guildId);
+        TextChannel channel = (guild == null ? null : guild.getTextChannelById(channelId));
+        if(channel == null){ // channel deleted or server left, the rest of the queue goes with it
+            dropAll();
+            outboxes.remove(channelId, this);
+            return;
+        }
+        MessageCreateAction action;
+        try{
+            action = channel.sendMessage(text);
+        }catch(RuntimeException e){ // no permission to write in the channel, the rest of the queue would fail the same way
+            Bot.logger.warn("Unable to send messages to channel {} in server {}, dropping the queue. {}", channelId, guild.getName(), e.getMessage());
+            dropped.increment();
+            dropAll();
+            return;
+        }
+        requests.increment();
+        // whatever is queued while this request waits for its rate limit bucket goes out with the next one
+        action.queue(
+            (success) -> flush(),
+            (failure) -> {
+                Bot.logger.warn("Unable to send a message to channel {} in server {}.", channelId, guild.getName());
+                flush();
+            }
+        );
+    }
+    private synchronized void dropAll(){
+        for(ArrayDeque<String> queue : pending){
+            queued.addAndGet(-queue.size());
+            dropped.add(queue.size());
+            queue.clear();
+        }
+        size = 0;
+        busy = false;
+    }
+    private String nextMessage(){ // as many queued messages as fit into one, most important first, null if nothing is queued
+        StringBuilder builder = new StringBuilder();
+        for(ArrayDeque<String> queue : pending){
+            while(!queue.isEmpty()){
+                String text = queue.peekFirst();
+                int needed = (builder.length() == 0 ? text.length() : builder.length() + 1 + text.length());
+                if(needed > MESSAGE_LIMIT){
+                    if(builder.length() > 0){
+                        return builder.toString();
+                    }
+                    queue.pollFirst(); // longer than a message on its own, sent in pieces
+                    queue.addFirst(text.substring(MESSAGE_LIMIT));
+                    return text.substring(0, MESSAGE_LIMIT);
+                }
+                queue.pollFirst();
+                size--;
+                queued.decrementAndGet();
+                if(builder.length() > 0){
+                    builder.append('\n');
+                }
+                builder.append(text);
+            }
+        }
+        return (builder.length() == 0 ? null : builder.toString());
+    }
+}
@@ -0,0 +1,238 @@
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.middleman.GuildMessageChannel;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// /purge: deletes the messages of a channel that match an author, a content pattern and a time window, newest first
+// the history is read a page at a time while the previous chunks are being deleted, nothing but the current chunk is kept
+// messages younger than 14 days go in bulk deletes of up to 100, older ones can only be deleted one by one and are spaced out,
+// so a run stops early enough for its reply, the interaction token expires after 15 minutes
+// pinned messages are kept
+public final class Purge{
+    static final int DEFAULT_MESSAGES = 100;
+    static final int MAX_MESSAGES = 10000; // deleted per command
+    static final int MAX_SCANNED = 50000; // history read per command, a rare match would otherwise read the channel to its start
+    static final int MAX_PATTERN_LENGTH = 100;
+    static final int CHUNK = 100; // messages per bulk delete, discord's maximum
+    static final long BULK_AGE_LIMIT = TimeUnit.DAYS.toMillis(14) - TimeUnit.MINUTES.toMillis(10); // [ms] discord rejects older messages, the margin covers chunks waiting for the rate limit
+    static final int BULK_CONCURRENCY = 2; // bulk deletes in flight, they share the rate limit bucket of the channel
+    static final long SINGLE_DELETE_INTERVAL = 1000; // [ms] between deletes of old messages, their limit is tighter than the bucket jda sees
+    static final long PROGRESS_INTERVAL = 3; // [s] between edits of the reply
+    static final long MAX_DURATION = TimeUnit.MINUTES.toNanos(13); // [ns] reading and queueing stop here, the interaction token expires after 15 minutes
+    static final int MAX_SINGLE_DELETES = 600; // per command, 10 minutes of old messages at SINGLE_DELETE_INTERVAL
+    private final GuildMessageChannel channel;
+    private final Semaphore bulkPermits = new Semaphore(BULK_CONCURRENCY); // held by a request until it succeeded or gave up, retries included
+    private final Semaphore singlePermit = new Semaphore(1);
+    private final AtomicInteger scanned = new AtomicInteger();
+    private final AtomicInteger matched = new AtomicInteger();
+    private final AtomicInteger deleted = new AtomicInteger();
+    private final AtomicInteger missing = new AtomicInteger(); // deleted by someone else in the meantime
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+    private final AtomicInteger bulkRequests = new AtomicInteger();
+    private int singleDeletes = 0;
+    private boolean timedOut = false; // stopped by MAX_SINGLE_DELETES or MAX_DURATION, the rest is left for another run
+    private long nextSingle = 0; // [ns] earliest start of the next single delete
+    private Purge(GuildMessageChannel channel){
+        this.channel = channel;
+    }
+    public static void purgeCommand(SlashCommandInteractionEvent event){ // on the blocking command pool, history pages and deletes are awaited here
+        if(!event.getMember().hasPermission(Permission.MESSAGE_MANAGE)){
+            Bot.insufficientPermissionsStandardResponseSlashCommand(event);
+            return;
+        }
+        if(!(event.getChannel() instanceof GuildMessageChannel channel)){
+            event.reply("Messages can only be purged in server channels.").setEphemeral(true).queue();
+            return;
+        }
+        Guild guild = event.getGuild();
+        if(!guild.getSelfMember().hasPermission(channel, Permission.MESSAGE_MANAGE, Permission.MESSAGE_HISTORY)){
+            event.reply("The bot needs the Manage Messages and Read Message History permissions in this channel.").setEphemeral(true).queue();
+            return;
+        }
+        Pattern pattern = null;
+        if(event.getOption("pattern") != null){
+            String raw = event.getOption("pattern").getAsString();
+            try{
+                pattern = (raw.length() > MAX_PATTERN_LENGTH ? null : Pattern.compile(raw, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+            }catch(PatternSyntaxException e){
+                pattern = null;
+            }
+            if(pattern == null){
+                event.reply(String.format("The pattern has to be a regular expression of at most %d characters.", MAX_PATTERN_LENGTH)).setEphemeral(true).queue();
+                return;
+            }
+        }
+        int count = (event.getOption("count") != null ? Math.max(1, Math.min(MAX_MESSAGES, event.getOption("count").getAsInt())) : DEFAULT_MESSAGES);
+        long userId = (event.getOption("user") != null ? event.getOption("user").getAsUser().getIdLong() : 0);
+        OffsetDateTime since = (event.getOption("minutes") != null ? OffsetDateTime.now().minusMinutes(Math.max(0, event.getOption("minutes").getAsLong())) : null);
+        event.deferReply(true).queue();
+        Purge purge = new Purge(channel);
+        long start = System.nanoTime();
+        ScheduledFuture<?> progress = Bot.scheduler.scheduleWithFixedDelay(() -> event.getHook().editOriginal(purge.progress(count)).queue(), PROGRESS_INTERVAL, PROGRESS_INTERVAL, TimeUnit.SECONDS);
+        String error = null;
+        try{
+            purge.execute(count, userId, pattern, since);
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }catch(RuntimeException e){ // a history page failed, the chunks sent so far stay deleted
+            error = Http.rootCause(e).toString();
+            Bot.logger.error("Unable to read the history of channel {} in server {}.", channel.getId(), guild.getName(), e);
+        }finally{
+            progress.cancel(false);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        String filters = filters(count, userId, event.getOption("pattern") != null ? event.getOption("pattern").getAsString() : null, event.getOption("minutes") != null ? event.getOption("minutes").getAsLong() : -1);
+        Metrics.counter("bot_purged_messages_total", "result", "deleted").add(purge.deleted.get());
+        Metrics.counter("bot_purged_messages_total", "result", "failed").add(purge.failed.get());
+        Bot.logger.event("purge", "guild", guild.getId(), "channel", channel.getId(), "moderator", event.getMember().getId(), "scanned", purge.scanned.get(), "matched", purge.matched.get(),
+                "deleted", purge.deleted.get(), "failed", purge.failed.get(), "bulk_requests", purge.bulkRequests.get(), "retries", purge.retries.get(), "seconds", String.format(Locale.US, "%.1f", seconds));
+        Bot.specialMessage(3, guild, String.format("<@%s> purged %d messages in <#%s> (%s).", event.getMember().getId(), purge.deleted.get(), channel.getId(), filters));
+        event.getHook().editOriginal(purge.summary(seconds) + (error == null ? "" : " Reading the history failed: " + error)).queue();
+    }
+    private void execute(int count, long userId, Pattern pattern, OffsetDateTime since) throws InterruptedException{
+        try{
+            stream(count, userId, pattern, since);
+        }finally{ // every request finished, jda times them out, so this does not hang
+            bulkPermits.acquireUninterruptibly(BULK_CONCURRENCY);
+            singlePermit.acquireUninterruptibly();
+        }
+    }
+    private void stream(int count, long userId, Pattern pattern, OffsetDateTime since) throws InterruptedException{
+        long deadline = System.nanoTime() + MAX_DURATION;
+        List<String> chunk = new ArrayList<>(CHUNK);
+        long bulkCutoff = System.currentTimeMillis() - BULK_AGE_LIMIT;
+        for(Message message : channel.getIterableHistory().cache(false)){ // the iterator requests the next page when the current one is used up
+            if(scanned.incrementAndGet() > MAX_SCANNED || (since != null && message.getTimeCreated().isBefore(since))){
+                break; // newest first, everything further back is older still
+            }
+            if(System.nanoTime() - deadline > 0){
+                timedOut = true;
+                break;
+            }
+            if(message.isPinned() || (userId != 0 && message.getAuthor().getIdLong() != userId) || (pattern != null && !pattern.matcher(message.getContentRaw()).find())){
+                continue;
+            }
+            if(message.getTimeCreated().toInstant().toEpochMilli() >= bulkCutoff){
+                chunk.add(message.getId());
+                if(chunk.size() == CHUNK){
+                    deleteBulk(chunk);
+                    chunk = new ArrayList<>(CHUNK);
+                }
+            }else{
+                if(singleDeletes == MAX_SINGLE_DELETES){
+                    timedOut = true;
+                    break;
+                }
+                deleteBulk(chunk); // the remaining young ones, all later matches are old
+                chunk = new ArrayList<>(CHUNK);
+                deleteSingle(message.getIdLong());
+                singleDeletes++;
+            }
+            if(matched.incrementAndGet() == count){
+                break;
+            }
+        }
+        deleteBulk(chunk);
+    }
+    private void deleteBulk(List<String> ids) throws InterruptedException{
+        if(ids.isEmpty()){
+            return;
+        }
+        bulkPermits.acquire(); // pauses the history while both requests wait for the bucket
+        bulkRequests.incrementAndGet();
+        if(ids.size() == 1){ // a bulk delete needs at least two
+            String id = ids.get(0);
+            queue(() -> channel.deleteMessageById(id), 1, 1, bulkPermits);
+        }else{
+            queue(() -> channel.deleteMessagesByIds(ids), ids.size(), 1, bulkPermits);
+        }
+    }
+    private void deleteSingle(long messageId) throws InterruptedException{
+        singlePermit.acquire();
+        long wait = nextSingle - System.nanoTime();
+        if(wait > 0){
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        nextSingle = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SINGLE_DELETE_INTERVAL);
+        queue(() -> channel.deleteMessageById(messageId), 1, 1, singlePermit);
+    }
+    private void queue(Supplier<RestAction<Void>> request, int messages, int attempt, Semaphore permit){ // the permit is released once the request succeeded or gave up
+        RestAction<Void> action;
+        try{
+            action = request.get();
+        }catch(RuntimeException e){ // a retried chunk grew too old for a bulk delete, or the bot lost its permissions
+            failed.addAndGet(messages);
+            permit.release();
+            return;
+        }
+        action.queue(
+            (success) -> {
+                deleted.addAndGet(messages);
+                permit.release();
+            },
+            (failure) -> {
+                long delay = BulkModeration.retryDelay(failure, attempt);
+                if(delay >= 0){ // rate limited or a server error, the permit is kept so the history waits too
+                    retries.incrementAndGet();
+                    Bot.scheduler.schedule(() -> queue(request, messages, attempt + 1, permit), delay, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                if(messages == 1 && failure instanceof ErrorResponseException error && error.getErrorResponse() == ErrorResponse.UNKNOWN_MESSAGE){
+                    missing.incrementAndGet();
+                }else{
+                    failed.addAndGet(messages);
+                    Bot.logger.warn("Unable to delete {} messages in channel {}. {}", messages, channel.getId(), failure.toString());
+                }
+                permit.release();
+            }
+        );
+    }
+    static String filters(int count, long userId, String pattern, long minutes){ // for the logging chat
+        StringBuilder builder = new StringBuilder("up to ").append(count);
+        if(userId != 0){
+            builder.append(", from <@").append(userId).append('>');
+        }
+        if(pattern != null){
+            builder.append(", matching `").append(pattern.replace("`", "'")).append('`');
+        }
+        if(minutes >= 0){
+            builder.append(", of the last ").append(minutes).append(" minutes");
+        }
+        return builder.toString();
+    }
+    private String progress(int count){
+        return String.format("Purging: %d of up to %d messages deleted, %d read, %d retried.", deleted.get(), count, scanned.get(), retries.get());
+    }
+    private String summary(double seconds){
+        StringBuilder builder = new StringBuilder(String.format(Locale.US, "Deleted %d messages in %.1f s, %d read.", deleted.get(), seconds, Math.min(scanned.get(), MAX_SCANNED)));
+        if(missing.get() > 0){
+            builder.append(String.format(" %d were already gone.", missing.get()));
+        }
+        if(failed.get() > 0){
+            builder.append(String.format(" %d could not be deleted.", failed.get()));
+        }
+        if(scanned.get() > MAX_SCANNED){
+            builder.append(String.format(" Stopped after %d messages, run the command again to go further back.", MAX_SCANNED));
+        }else if(timedOut){
+            builder.append(String.format(" Stopped after %d messages older than 14 days, which go one per second, so this reply stays within its 15 minutes. Run the command again to continue.", singleDeletes));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,102 @@
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// per-guild join rate over a sliding window, lock-free and of fixed size: one slot per second and account age bucket
+// crossing a threshold puts the guild into raid mode for a while, welcomes stop and the staff chat is alerted once
+public final class RaidDetector{
+    static final int WINDOW = 60; // [s]
+    static final long[] AGE_BUCKETS = {3600000L, 86400000L, 7*86400000L, Long.MAX_VALUE}; // [ms] account age upper bounds: an hour, a day, a week, older
+    static final int NEW_ACCOUNT_BUCKETS = 2; // younger than a day
+    static final int RAID_JOINS = Integer.parseInt(System.getenv().getOrDefault("RAID_JOINS", "20")); // joins within the window
+    static final int RAID_NEW_ACCOUNTS = Integer.parseInt(System.getenv().getOrDefault("RAID_NEW_ACCOUNTS", "8")); // joins of accounts younger than a day within the window
+    static final long RAID_COOLDOWN = 600000; // [ms] raid mode lasts after the last join over the threshold
+    static final int RAID_TIMEOUT = Integer.parseInt(System.getenv().getOrDefault("RAID_TIMEOUT", "0")); // [min] timeout of accounts younger than a week joining during a raid, 0 - disabled
+    static final int NORMAL = 0;
+    static final int RAID_STARTED = 1; // returned to exactly one join per raid
+    static final int RAID = 2;
+    private static final ConcurrentHashMap<Long, RaidDetector> guilds = new ConcurrentHashMap<>();
+    private static final Metrics.Counter raids = Metrics.counter("bot_raid_events_total", "event", "detected");
+    private static final Metrics.Counter suppressed = Metrics.counter("bot_raid_events_total", "event", "welcome_suppressed");
+    private final AtomicLongArray slots = new AtomicLongArray(WINDOW*AGE_BUCKETS.length); // second << 32 | joins
+    private final AtomicLong raidUntil = new AtomicLong(); // [epoch ms]
+    public RaidDetector(){}
+    public static boolean onJoin(Member member){ // true - welcome the member as usual
+        long now = System.currentTimeMillis();
+        long created = member.getTimeCreated().toInstant().toEpochMilli();
+        Guild guild = member.getGuild();
+        RaidDetector detector = guilds.computeIfAbsent(guild.getIdLong(), id -> new RaidDetector());
+        int verdict = detector.join(now, created);
+        if(verdict == NORMAL){
+            return true;
+        }
+        if(verdict == RAID_STARTED){
+            int joins = detector.recent(now, AGE_BUCKETS.length);
+            int newAccounts = detector.recent(now, NEW_ACCOUNT_BUCKETS);
+            raids.increment();
+            Bot.logger.event("raid", "guild", guild.getId(), "joins", joins, "new_accounts", newAccounts, "window_seconds", WINDOW);
+            Bot.specialMessage(2, guild, String.format("Possible raid: %d joins in the last %d s, %d of them from accounts younger than a day. Welcome messages are paused for %d minutes%s. Use /massban with \"joined\" to remove the accounts.",
+                    joins, WINDOW, newAccounts, RAID_COOLDOWN/60000, (RAID_TIMEOUT > 0 ? String.format(" and new accounts are timed out for %d minutes", RAID_TIMEOUT) : "")));
+        }
+        suppressed.increment();
+        if(RAID_TIMEOUT > 0 && now - created < AGE_BUCKETS[2]){
+            member.timeoutFor(RAID_TIMEOUT, TimeUnit.MINUTES).reason("Raid protection").queue(null,
+                (failure) -> Bot.logger.warn("Unable to timeout user {} during a raid in server {}.", member.getId(), guild.getName()));
+        }
+        return false;
+    }
+    public static boolean inRaid(Guild guild){
+        RaidDetector detector = guilds.get(guild.getIdLong());
+        return (detector != null && System.currentTimeMillis() < detector.raidUntil.get());
+    }
+    public int join(long now, long accountCreated){ // also driven directly by the replay harness in benchmarks
+        long second = now/1000;
+        int bucket = ageBucket(now - accountCreated);
+        int index = (int) (second % WINDOW)*AGE_BUCKETS.length + bucket;
+        long value;
+        long updated;
+        do{
+            value = slots.get(index);
+            updated = ((value >>> 32) >= second ? value + 1 : (second << 32 | 1)); // a slot from an earlier lap of the ring starts over
+        }while(!slots.compareAndSet(index, value, updated));
+        boolean over = recent(now, AGE_BUCKETS.length) >= RAID_JOINS || recent(now, NEW_ACCOUNT_BUCKETS) >= RAID_NEW_ACCOUNTS;
+        if(!over){
+            return (now < raidUntil.get() ? RAID : NORMAL);
+        }
+        long extended = now + RAID_COOLDOWN;
+        while(true){ // the join that moves raidUntil from the past into the future starts the raid
+            long until = raidUntil.get();
+            if(until >= extended){
+                return RAID;
+            }
+            if(raidUntil.compareAndSet(until, extended)){
+                return (until <= now ? RAID_STARTED : RAID);
+            }
+        }
+    }
+    public int recent(long now, int buckets){ // joins within the window of the youngest age buckets
+        long second = now/1000;
+        int count = 0;
+        for(int slot = 0; slot < WINDOW; slot++){
+            for(int bucket = 0; bucket < buckets; bucket++){
+                long value = slots.get(slot*AGE_BUCKETS.length + bucket);
+                if(second - (value >>> 32) < WINDOW){
+                    count += (int) value;
+                }
+            }
+        }
+        return count;
+    }
+    static int ageBucket(long age){
+        for(int i = 0; i < AGE_BUCKETS.length - 1; i++){
+            if(age < AGE_BUCKETS[i]){
+                return i;
+            }
+        }
+        return AGE_BUCKETS.length - 1;
+    }
+}
@@ -0,0 +1,109 @@
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+
+// per-language pools of prefetched random wikipedia article urls, so /random answers from memory
+public final class RandomArticlePool{
+    static final int POOL_SIZE = 8; // articles kept per language
+    static final int MAX_LANGUAGES = 32;
+    static final long IDLE_EVICTION = TimeUnit.HOURS.toMillis(1); // languages unused for this long are dropped
+    static final int EVICTION_INTERVAL = 600; // [s]
+    private static final class Pool{
+        final ArrayDeque<String> articles = new ArrayDeque<>(POOL_SIZE);
+        final AtomicBoolean refilling = new AtomicBoolean(false);
+        volatile long lastUsed = System.currentTimeMillis();
+    }
+    private static final ConcurrentHashMap<String, Pool> pools = new ConcurrentHashMap<>();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder refills = new LongAdder();
+    private static final LongAdder refillTime = new LongAdder(); // [ms] summed over all refill requests
+    private RandomArticlePool(){}
+    public static void start(){
+        refill("en", pools.computeIfAbsent("en", language -> new Pool()));
+        Bot.scheduler.scheduleWithFixedDelay(RandomArticlePool::evict, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.SECONDS);
+    }
+    public static String poll(String language){ // null on a miss, the pool is refilled in the background either way
+        Pool pool = pools.computeIfAbsent(language, key -> new Pool());
+        pool.lastUsed = System.currentTimeMillis();
+        String article;
+        synchronized(pool.articles){
+            article = pool.articles.poll();
+        }
+        (article == null ? misses : hits).increment();
+        refill(language, pool);
+        return article;
+    }
+    public static CompletableFuture<String> fetch(String language){ // a single Special:Random request, only the redirect is read
+        HttpRequest request = Http.request(String.format(Http.WIKIPEDIA_URL, language) + "/wiki/Special:Random").GET().build();
+        return Http.send(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            String article = response.headers().firstValue("Location").orElse(null);
+            if(article == null){ // no redirect, fall back to the canonical link in the document head
+                String body = response.body();
+                int headEnd = body.indexOf("</head>");
+                Matcher canonical = Bot.CANONICAL_LINK.matcher(headEnd < 0 ? body : body.substring(0, headEnd));
+                article = (canonical.find() ? canonical.group(1) : null);
+            }
+            if(article == null){
+                throw new CompletionException(new IllegalStateException("No article in the Wikipedia response."));
+            }
+            return article;
+        });
+    }
+    private static void refill(String language, Pool pool){
+        if(pool.refilling.compareAndSet(false, true)){
+            refillNext(language, pool);
+        }
+    }
+    private static void refillNext(String language, Pool pool){
+        synchronized(pool.articles){
+            if(pool.articles.size() >= POOL_SIZE){
+                pool.refilling.set(false);
+                return;
+            }
+        }
+        long time = System.currentTimeMillis();
+        fetch(language).whenComplete((article, error) -> {
+            refills.increment();
+            refillTime.add(System.currentTimeMillis() - time);
+            if(error != null){
+                pool.refilling.set(false);
+                synchronized(pool.articles){
+                    if(pool.articles.isEmpty()){
+                        pools.remove(language, pool); // most likely not a wikipedia language, do not keep retrying it
+                    }
+                }
+                return;
+            }
+            synchronized(pool.articles){
+                pool.articles.add(article);
+            }
+            refillNext(language, pool);
+        });
+    }
+    static void evict(){
+        long now = System.currentTimeMillis();
+        pools.entrySet().removeIf(entry -> !entry.getKey().equals("en") && now - entry.getValue().lastUsed > IDLE_EVICTION);
+        while(pools.size() > MAX_LANGUAGES){
+            pools.entrySet().stream().filter(entry -> !entry.getKey().equals("en")).min(Comparator.comparingLong(entry -> entry.getValue().lastUsed))
+                    .map(Map.Entry::getKey).ifPresent(pools::remove);
+        }
+    }
+    public static String stats(){
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        long refillCount = refills.sum();
+        return String.format(Locale.US, "pool hit rate %.1f%% over %d requests, %d languages pooled, avg refill %d ms",
+                (total == 0 ? 0.0 : 100.0*hitCount/total), total, pools.size(), (refillCount == 0 ? 0 : refillTime.sum()/refillCount));
+    }
+}
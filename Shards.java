@@ -0,0 +1,171 @@
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.JDABuilder;
+import net.dv8tion.jda.api.entities.Activity;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.sharding.ShardManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static net.dv8tion.jda.api.requests.GatewayIntent.GUILD_MEMBERS;
+import static net.dv8tion.jda.api.requests.GatewayIntent.MESSAGE_CONTENT;
+
+// gateway sessions: one JDA by default, a DefaultShardManager when SHARDS is set
+// every shard has its own single-threaded executor that runs its events and the timers of its servers in order
+public final class Shards{
+    static final String SHARDS = System.getenv("SHARDS"); // unset - a single session, "auto" - the count recommended by discord, or a number
+    static final String SHARD_RANGE = System.getenv("SHARD_RANGE"); // "first-last" shards run by this process, default all of them
+    static final boolean MESSAGE_CONTENT_INTENT = Boolean.parseBoolean(System.getenv("MESSAGE_CONTENT")); // privileged, has to be enabled in the developer portal too, auto-translation needs it
+    private static final ConcurrentHashMap<Integer, ScheduledThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+    private static JDA single;
+    private static ShardManager manager;
+    private static int total = 1;
+    private static int first = 0;
+    private static int last = 0;
+    private Shards(){}
+    static List<GatewayIntent> intents(){
+        return (MESSAGE_CONTENT_INTENT ? List.of(GUILD_MEMBERS, MESSAGE_CONTENT) : List.of(GUILD_MEMBERS));
+    }
+    public static void start(String token, EventListener listener){
+        if(SHARDS == null){
+            single = JDABuilder.createLight(token).addEventListeners(listener).setActivity(Activity.playing("Loading...")).enableIntents(intents()).setMemberCachePolicy(MemberCache.policy())
+                    .setEventPool(executor(0), false).build();
+            return;
+        }
+        DefaultShardManagerBuilder builder = DefaultShardManagerBuilder.createLight(token).addEventListeners(listener).setActivity(Activity.playing("Loading...")).enableIntents(intents())
+                .setMemberCachePolicy(MemberCache.policy()).setEventPoolProvider(Shards::executor);
+        if(!SHARDS.equalsIgnoreCase("auto")){
+            builder.setShardsTotal(Integer.parseInt(SHARDS));
+        }
+        if(SHARD_RANGE != null){
+            String[] range = SHARD_RANGE.split("-");
+            builder.setShards(Integer.parseInt(range[0].trim()), Integer.parseInt(range[range.length-1].trim()));
+        }
+        manager = builder.build();
+        total = manager.getShardsTotal();
+        if(SHARD_RANGE != null){
+            String[] range = SHARD_RANGE.split("-");
+            first = Integer.parseInt(range[0].trim());
+            last = Integer.parseInt(range[range.length-1].trim());
+        }else{
+            last = total-1;
+        }
+        Bot.logger.info("Running shards {}-{} of {}.", first, last, total);
+    }
+    public static int total(){
+        return total;
+    }
+    public static int localCount(){ // shards run by this process
+        return last - first + 1;
+    }
+    public static int shardId(long guildId){ // discord's routing formula
+        return (int) ((guildId >>> 22) % total);
+    }
+    public static boolean isLocal(String guildId){
+        try{
+            int shard = shardId(Long.parseLong(guildId));
+            return shard >= first && shard <= last;
+        }catch(NumberFormatException e){
+            return false;
+        }
+    }
+    public static JDA shard(int shardId){
+        return (manager == null ? single : manager.getShardById(shardId));
+    }
+    public static JDA forGuild(long guildId){
+        return shard(shardId(guildId));
+    }
+    public static Guild guild(long guildId){ // asks only the shard that owns the server
+        JDA shard = forGuild(guildId);
+        return (shard == null ? null : shard.getGuildById(guildId));
+    }
+    public static Guild guild(String guildId){
+        try{
+            return guild(Long.parseLong(guildId));
+        }catch(NumberFormatException e){
+            return null;
+        }
+    }
+    public static List<JDA> all(){
+        if(manager == null){
+            return (single == null ? List.of() : List.of(single));
+        }
+        return manager.getShards();
+    }
+    public static JDA any(){ // for calls that are not tied to a server, e.g. command registration
+        List<JDA> shards = all();
+        return (shards.isEmpty() ? null : shards.get(0));
+    }
+    public static ScheduledExecutorService executor(long guildId){ // timers of a server run with the events of its shard
+        return executor(shardId(guildId));
+    }
+    public static ScheduledExecutorService executor(String guildId){
+        try{
+            return executor(Long.parseLong(guildId));
+        }catch(NumberFormatException e){
+            return Bot.scheduler;
+        }
+    }
+    public static ScheduledThreadPoolExecutor executor(int shardId){
+        return executors.computeIfAbsent(shardId, id -> {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "shard-" + id);
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true); // cancelled appeal timers do not linger in the queue
+            return executor;
+        });
+    }
+    public static void setActivity(Activity activity){
+        if(manager == null){
+            single.getPresence().setActivity(activity);
+        }else{
+            manager.setActivity(activity);
+        }
+    }
+    public static int connected(){
+        int count = 0;
+        for(JDA shard : all()){
+            if(shard.getStatus() == JDA.Status.CONNECTED){
+                count++;
+            }
+        }
+        return count;
+    }
+    public static long queuedTasks(){ // events and timers waiting on all shard executors
+        long queued = 0;
+        for(ScheduledThreadPoolExecutor executor : executors.values()){
+            queued += executor.getQueue().size();
+        }
+        return queued;
+    }
+    public static long queuedRestRequests(){ // shards may share a rate limit pool, each pool is counted once
+        Set<ExecutorService> pools = Collections.newSetFromMap(new IdentityHashMap<>());
+        long queued = 0;
+        for(JDA shard : new ArrayList<>(all())){
+            if(pools.add(shard.getRateLimitPool()) && shard.getRateLimitPool() instanceof ThreadPoolExecutor pool){
+                queued += pool.getQueue().size();
+            }
+        }
+        return queued;
+    }
+    public static void shutdown(){
+        if(manager == null){
+            single.shutdown();
+        }else{
+            manager.shutdown();
+        }
+    }
+}
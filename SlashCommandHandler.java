@@ -0,0 +1,7 @@
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+
+// body of a single slash command, see CommandRegistry
+@FunctionalInterface
+public interface SlashCommandHandler{
+    void handle(SlashCommandInteractionEvent event) throws Exception;
+}
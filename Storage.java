@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// journaled per-guild tables for data/banList and data/appeals
+public final class Storage{
+    static final int FLUSH_INTERVAL = 200; // [ms] between batched fsyncs of the journals
+    private static final ConcurrentHashMap<String, JournaledTable<Ban>> banLists = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, JournaledTable<Appeal>> appeals = new ConcurrentHashMap<>();
+    public record Ban(String userId, String reason, int time){}
+    public record Appeal(String messageId, int closeTime, String userId){}
+    static final JournaledTable.Codec<Ban> BAN_CODEC = new JournaledTable.Codec<>(){
+        public String key(Ban row){
+            return row.userId();
+        }
+        public String encode(Ban row){
+            return row.userId() + "," + row.reason() + "," + row.time();
+        }
+        public Ban decode(String line){ // the reason may contain commas, so the id and the time are taken from the ends
+            int first = line.indexOf(',');
+            int last = line.lastIndexOf(',');
+            try{
+                return (first < 0 || first == last ? null : new Ban(line.substring(0, first).trim(), line.substring(first+1, last), Integer.parseInt(line.substring(last+1).trim())));
+            }catch(NumberFormatException e){
+                return null;
+            }
+        }
+    };
+    static final JournaledTable.Codec<Appeal> APPEAL_CODEC = new JournaledTable.Codec<>(){
+        public String key(Appeal row){
+            return row.messageId();
+        }
+        public String encode(Appeal row){
+            return row.messageId() + "," + row.closeTime() + "," + row.userId();
+        }
+        public Appeal decode(String line){
+            String[] content = line.trim().split(",");
+            try{
+                return (content.length < 3 ? null : new Appeal(content[0], Integer.parseInt(content[1]), content[2]));
+            }catch(NumberFormatException e){
+                return null;
+            }
+        }
+    };
+    private Storage(){}
+    public static void start(){
+        Bot.scheduler.scheduleWithFixedDelay(Storage::flushAll, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(Storage::flushAll));
+    }
+    public static JournaledTable<Ban> bans(String guildId){
+        return banLists.computeIfAbsent(guildId, id -> open("banList", id, BAN_CODEC));
+    }
+    public static JournaledTable<Appeal> appeals(String guildId){
+        return appeals.computeIfAbsent(guildId, id -> open("appeals", id, APPEAL_CODEC));
+    }
+    public static void migrate(String guildId){ // opening a table converts the legacy CSV, see reloadFiles
+        bans(guildId);
+        appeals(guildId);
+    }
+    public static List<String> guildIds(String dir){
+        List<String> ids = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(Bot.DATA, dir), "*.csv")){
+            for(Path i : stream){
+                String name = i.getFileName().toString();
+                ids.add(name.substring(0, name.length()-4));
+            }
+        }catch(IOException e){
+            Bot.logger.error("Unable to list data/{}.", dir);
+        }
+        return ids;
+    }
+    public static void flushAll(){
+        flush(banLists.values());
+        flush(appeals.values());
+    }
+    private static void flush(Iterable<? extends JournaledTable<?>> tables){
+        for(JournaledTable<?> table : tables){
+            try{
+                table.flush();
+            }catch(IOException e){
+                Bot.logger.error("Unable to flush a storage journal.");
+            }
+        }
+    }
+    private static <R> JournaledTable<R> open(String dir, String guildId, JournaledTable.Codec<R> codec){
+        try{
+            return new JournaledTable<>(Paths.get(Bot.DATA, dir, guildId + ".csv"), codec);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+
+// wraps the bot listener to record how long every gateway event handler takes
+public class TimedEventListener implements EventListener{
+    private final EventListener listener;
+    public TimedEventListener(EventListener listener){
+        this.listener = listener;
+    }
+    @Override
+    public void onEvent(GenericEvent event){
+        long start = System.nanoTime();
+        try{
+            listener.onEvent(event);
+        }finally{
+            Metrics.time("bot_event_duration_seconds", "event", event.getClass().getSimpleName(), start);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// bounded LRU of DeepL results with a TTL and an on-disk copy, identical concurrent requests share one upstream call
+public final class TranslationCache{
+    static final int MAX_ENTRIES = 4096;
+    static final long TTL = TimeUnit.DAYS.toMillis(7);
+    static final int PERSIST_INTERVAL = 300; // [s] between writes of the on-disk tier
+    static final Path FILE = Paths.get(Bot.DATA, "translations.tsv");
+    public record Key(String text, String source, String target){}
+    private record Entry(String translation, long expiresAt){}
+    private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(256, 0.75f, true){
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest){
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private static final ConcurrentHashMap<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder coalesced = new LongAdder();
+    private static final LongAdder upstreamTime = new LongAdder(); // [ms] summed over all upstream calls
+    private static volatile boolean changed = false;
+    private TranslationCache(){}
+    public static Key key(String text, String source, String target){
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).trim().replaceAll("\\s+", " ");
+        return new Key(normalized, source.toUpperCase(), target.toUpperCase());
+    }
+    public static CompletableFuture<String> get(Key key, Supplier<CompletableFuture<String>> upstream){
+        String cached = lookup(key);
+        if(cached != null){
+            hits.increment();
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, created);
+        if(running != null){
+            coalesced.increment();
+            return running;
+        }
+        misses.increment();
+        long time = System.currentTimeMillis();
+        try{
+            upstream.get().whenComplete((translation, error) -> {
+                upstreamTime.add(System.currentTimeMillis() - time);
+                inFlight.remove(key, created);
+                if(error != null){
+                    created.completeExceptionally(error);
+                    return;
+                }
+                store(key, translation);
+                created.complete(translation);
+            });
+        }catch(RuntimeException e){
+            inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created;
+    }
+    private static String lookup(Key key){
+        synchronized(entries){
+            Entry entry = entries.get(key);
+            if(entry == null){
+                return null;
+            }
+            if(entry.expiresAt < System.currentTimeMillis()){
+                entries.remove(key);
+                return null;
+            }
+            return entry.translation;
+        }
+    }
+    private static void store(Key key, String translation){
+        synchronized(entries){
+            entries.put(key, new Entry(translation, System.currentTimeMillis() + TTL));
+        }
+        changed = true;
+    }
+    public static String stats(){
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount + coalesced.sum();
+        return String.format(Locale.US, "cache hit rate %.1f%% (%d hits, %d coalesced, %d upstream calls, avg upstream %d ms)",
+                (total == 0 ? 0.0 : 100.0*(hitCount + coalesced.sum())/total), hitCount, coalesced.sum(), missCount, (missCount == 0 ? 0 : upstreamTime.sum()/missCount));
+    }
+    public static void start(){
+        load();
+        Bot.scheduler.scheduleWithFixedDelay(() -> {
+            persist();
+            Bot.logger.info("Translation {}.", stats());
+        }, PERSIST_INTERVAL, PERSIST_INTERVAL, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(TranslationCache::persist));
+    }
+    static void load(){
+        if(!Files.exists(FILE)){
+            return;
+        }
+        try{
+            long now = System.currentTimeMillis();
+            for(String line : Files.readAllLines(FILE, StandardCharsets.UTF_8)){
+                String[] fields = line.split("\t", -1); // source, target, expires at, text, translation
+                if(fields.length != 5 || Long.parseLong(fields[2]) < now){
+                    continue;
+                }
+                synchronized(entries){
+                    entries.put(new Key(unescape(fields[3]), fields[0], fields[1]), new Entry(unescape(fields[4]), Long.parseLong(fields[2])));
+                }
+            }
+        }catch(IOException | NumberFormatException e){
+            Bot.logger.warn("Unable to load the translation cache, starting empty.");
+        }
+    }
+    static void persist(){
+        if(!changed){
+            return;
+        }
+        changed = false;
+        List<String> lines = new ArrayList<>();
+        synchronized(entries){
+            for(Map.Entry<Key, Entry> i : entries.entrySet()){
+                Key key = i.getKey();
+                lines.add(key.source() + "\t" + key.target() + "\t" + i.getValue().expiresAt + "\t" + escape(key.text()) + "\t" + escape(i.getValue().translation));
+            }
+        }
+        long start = System.nanoTime();
+        try{
+            Path temp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            try{
+                Files.move(temp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }catch(AtomicMoveNotSupportedException e){
+                Files.move(temp, FILE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Metrics.time("bot_file_io_seconds", "op", "translation_cache_write", start);
+        }catch(IOException e){
+            changed = true;
+            Bot.logger.warn("Unable to save the translation cache.");
+        }
+    }
+    private static String escape(String text){
+        return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+    private static String unescape(String text){
+        StringBuilder builder = new StringBuilder(text.length());
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c == '\\' && i + 1 < text.length()){
+                char next = text.charAt(++i);
+                builder.append(next == 't' ? '\t' : (next == 'n' ? '\n' : next));
+            }else{
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,443 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// unit conversion behind /height and /convert: a fixed unit table, an alias index and a parser/formatter
+// that work on the input in place, so the reply string is the only allocation of a successful conversion
+public final class Units{
+    static final int MAX_PARTS = 4; // "1 m 80 cm", "5 ft 11 in", "11 st 4 lb"
+    static final int MAX_INTEGER_DIGITS = 12;
+    static final double MAX_RESULT = 1e15; // the formatter works on longs
+    static final int MAX_SUGGESTIONS = 25; // discord limit for autocomplete choices
+    static final long[] POW10 = {1, 10, 100, 1000, 10000, 100000, 1000000};
+    static final String INVALID = "Invalid format! Try e.g. ``5 ft 11 in``, ``70 kg``, ``30 C``, ``100 km/h`` or ``2 cups to ml``.";
+    public enum Dimension{LENGTH, MASS, TEMPERATURE, SPEED, VOLUME}
+    public static final class Unit{
+        final String symbol;
+        final String name;
+        final Dimension dimension;
+        final double factor; // value in the base unit of the dimension = value*factor + offset
+        final double offset;
+        final String[] aliases; // lowercase, the symbol and the name are always aliases
+        Unit counterpart; // default target, metric <-> imperial
+        Unit companion; // smaller unit for 5'11 style input and output
+        Unit(String symbol, String name, Dimension dimension, double factor, double offset, String... aliases){
+            this.symbol = symbol;
+            this.name = name;
+            this.dimension = dimension;
+            this.factor = factor;
+            this.offset = offset;
+            this.aliases = aliases;
+        }
+        public String symbol(){
+            return symbol;
+        }
+        public String name(){
+            return name;
+        }
+        public Dimension dimension(){
+            return dimension;
+        }
+    }
+    // length [m]
+    static final Unit MILLIMETRE = new Unit("mm", "millimetre", Dimension.LENGTH, 0.001, 0, "millimetres", "millimeter", "millimeters");
+    static final Unit CENTIMETRE = new Unit("cm", "centimetre", Dimension.LENGTH, 0.01, 0, "centimetres", "centimeter", "centimeters");
+    static final Unit METRE = new Unit("m", "metre", Dimension.LENGTH, 1, 0, "metres", "meter", "meters");
+    static final Unit KILOMETRE = new Unit("km", "kilometre", Dimension.LENGTH, 1000, 0, "kilometres", "kilometer", "kilometers");
+    static final Unit INCH = new Unit("in", "inch", Dimension.LENGTH, 0.0254, 0, "inches", "\"");
+    static final Unit FOOT = new Unit("ft", "foot", Dimension.LENGTH, 0.3048, 0, "feet", "'");
+    static final Unit YARD = new Unit("yd", "yard", Dimension.LENGTH, 0.9144, 0, "yards");
+    static final Unit MILE = new Unit("mi", "mile", Dimension.LENGTH, 1609.344, 0, "miles");
+    // mass [kg]
+    static final Unit GRAM = new Unit("g", "gram", Dimension.MASS, 0.001, 0, "grams", "gramme", "grammes");
+    static final Unit KILOGRAM = new Unit("kg", "kilogram", Dimension.MASS, 1, 0, "kilograms", "kilo", "kilos", "kgs");
+    static final Unit TONNE = new Unit("t", "tonne", Dimension.MASS, 1000, 0, "tonnes", "metric ton", "metric tons");
+    static final Unit OUNCE = new Unit("oz", "ounce", Dimension.MASS, 0.028349523125, 0, "ounces");
+    static final Unit POUND = new Unit("lb", "pound", Dimension.MASS, 0.45359237, 0, "pounds", "lbs");
+    static final Unit STONE = new Unit("st", "stone", Dimension.MASS, 6.35029318, 0, "stones");
+    // temperature [degrees celsius]
+    static final Unit CELSIUS = new Unit("\u00B0C", "celsius", Dimension.TEMPERATURE, 1, 0, "c", "degc", "degrees celsius");
+    static final Unit FAHRENHEIT = new Unit("\u00B0F", "fahrenheit", Dimension.TEMPERATURE, 5.0/9, -160.0/9, "f", "degf", "degrees fahrenheit");
+    static final Unit KELVIN = new Unit("K", "kelvin", Dimension.TEMPERATURE, 1, -273.15);
+    // speed [m/s]
+    static final Unit METRES_PER_SECOND = new Unit("m/s", "metres per second", Dimension.SPEED, 1, 0, "mps", "meters per second");
+    static final Unit KILOMETRES_PER_HOUR = new Unit("km/h", "kilometres per hour", Dimension.SPEED, 1/3.6, 0, "kmh", "kph", "kmph", "kilometers per hour");
+    static final Unit MILES_PER_HOUR = new Unit("mph", "miles per hour", Dimension.SPEED, 0.44704, 0, "mi/h");
+    static final Unit FEET_PER_SECOND = new Unit("ft/s", "feet per second", Dimension.SPEED, 0.3048, 0, "fps");
+    static final Unit KNOT = new Unit("kn", "knot", Dimension.SPEED, 1852/3600.0, 0, "knots", "kt", "kts");
+    // volume [l], the customary units are the us ones
+    static final Unit MILLILITRE = new Unit("ml", "millilitre", Dimension.VOLUME, 0.001, 0, "millilitres", "milliliter", "milliliters");
+    static final Unit LITRE = new Unit("l", "litre", Dimension.VOLUME, 1, 0, "litres", "liter", "liters");
+    static final Unit TEASPOON = new Unit("tsp", "teaspoon", Dimension.VOLUME, 0.00492892159375, 0, "teaspoons");
+    static final Unit TABLESPOON = new Unit("tbsp", "tablespoon", Dimension.VOLUME, 0.01478676478125, 0, "tablespoons");
+    static final Unit FLUID_OUNCE = new Unit("fl oz", "fluid ounce", Dimension.VOLUME, 0.0295735295625, 0, "floz", "fl.oz", "fluid ounces");
+    static final Unit CUP = new Unit("cup", "cup", Dimension.VOLUME, 0.2365882365, 0, "cups");
+    static final Unit PINT = new Unit("pt", "pint", Dimension.VOLUME, 0.473176473, 0, "pints");
+    static final Unit QUART = new Unit("qt", "quart", Dimension.VOLUME, 0.946352946, 0, "quarts");
+    static final Unit GALLON = new Unit("gal", "gallon", Dimension.VOLUME, 3.785411784, 0, "gallons");
+    static final Unit[] UNITS = {MILLIMETRE, CENTIMETRE, METRE, KILOMETRE, INCH, FOOT, YARD, MILE, GRAM, KILOGRAM, TONNE, OUNCE, POUND, STONE,
+            CELSIUS, FAHRENHEIT, KELVIN, METRES_PER_SECOND, KILOMETRES_PER_HOUR, MILES_PER_HOUR, FEET_PER_SECOND, KNOT,
+            MILLILITRE, LITRE, TEASPOON, TABLESPOON, FLUID_OUNCE, CUP, PINT, QUART, GALLON};
+    // open addressing, keys are lowercase aliases and are compared against the input in place
+    private static final String[] aliasKeys;
+    private static final Unit[] aliasUnits;
+    static{
+        link(MILLIMETRE, INCH);
+        link(CENTIMETRE, INCH);
+        link(METRE, FOOT);
+        link(KILOMETRE, MILE);
+        link(INCH, CENTIMETRE);
+        link(FOOT, METRE);
+        link(YARD, METRE);
+        link(MILE, KILOMETRE);
+        link(GRAM, OUNCE);
+        link(KILOGRAM, POUND);
+        link(TONNE, POUND);
+        link(OUNCE, GRAM);
+        link(POUND, KILOGRAM);
+        link(STONE, KILOGRAM);
+        link(CELSIUS, FAHRENHEIT);
+        link(FAHRENHEIT, CELSIUS);
+        link(KELVIN, CELSIUS);
+        link(METRES_PER_SECOND, MILES_PER_HOUR);
+        link(KILOMETRES_PER_HOUR, MILES_PER_HOUR);
+        link(MILES_PER_HOUR, KILOMETRES_PER_HOUR);
+        link(FEET_PER_SECOND, METRES_PER_SECOND);
+        link(KNOT, KILOMETRES_PER_HOUR);
+        link(MILLILITRE, FLUID_OUNCE);
+        link(LITRE, GALLON);
+        link(TEASPOON, MILLILITRE);
+        link(TABLESPOON, MILLILITRE);
+        link(FLUID_OUNCE, MILLILITRE);
+        link(CUP, MILLILITRE);
+        link(PINT, LITRE);
+        link(QUART, LITRE);
+        link(GALLON, LITRE);
+        FOOT.companion = INCH;
+        STONE.companion = POUND;
+        int count = 0;
+        for(Unit unit : UNITS){
+            count += unit.aliases.length + 2;
+        }
+        int capacity = Integer.highestOneBit(count*4);
+        aliasKeys = new String[capacity];
+        aliasUnits = new Unit[capacity];
+        for(Unit unit : UNITS){
+            index(unit.symbol.toLowerCase(Locale.ROOT), unit);
+            if(!unit.name.equals(unit.symbol)){
+                index(unit.name, unit);
+            }
+            for(String alias : unit.aliases){
+                index(alias, unit);
+            }
+        }
+    }
+    // parse state, reused per thread so that parsing does not allocate
+    static final class Parsed{
+        final Unit[] units = new Unit[MAX_PARTS];
+        final double[] values = new double[MAX_PARTS];
+        int parts;
+        Unit target;
+        int quantityEnd; // end of the quantity in the input, the target clause is not echoed
+        boolean negative;
+    }
+    private static final ThreadLocal<Parsed> parsed = ThreadLocal.withInitial(Parsed::new);
+    private static final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(() -> new StringBuilder(128));
+    private Units(){}
+    private static void link(Unit unit, Unit counterpart){
+        unit.counterpart = counterpart;
+    }
+    private static void index(String alias, Unit unit){
+        int mask = aliasKeys.length - 1;
+        int slot = hash(alias, 0, alias.length()) & mask;
+        while(aliasKeys[slot] != null){
+            if(aliasKeys[slot].equals(alias)){
+                throw new IllegalStateException("Duplicate unit alias " + alias);
+            }
+            slot = (slot + 1) & mask;
+        }
+        aliasKeys[slot] = alias;
+        aliasUnits[slot] = unit;
+    }
+    private static int hash(CharSequence text, int start, int end){ // case-insensitive, mixed so that the low bits are usable
+        int hash = 0;
+        for(int i = start; i < end; i++){
+            hash = 31*hash + Character.toLowerCase(text.charAt(i));
+        }
+        return hash ^ (hash >>> 16);
+    }
+    static Unit lookup(String text, int start, int end){
+        int mask = aliasKeys.length - 1;
+        int slot = hash(text, start, end) & mask;
+        int length = end - start;
+        while(aliasKeys[slot] != null){
+            String key = aliasKeys[slot];
+            if(key.length() == length && key.regionMatches(true, 0, text, start, length)){
+                return aliasUnits[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+    public static Unit find(String text){ // a unit by any of its aliases, null if unknown
+        String trimmed = text.trim();
+        return lookup(trimmed, 0, trimmed.length());
+    }
+    public static String convert(String input, String target){ // the /convert reply, target may be null
+        Parsed result = parsed.get();
+        String error = parse(input, result);
+        if(error != null){
+            return error;
+        }
+        if(target != null){
+            result.target = find(target);
+            if(result.target == null){
+                return String.format("Unknown unit ``%s``.", target.trim());
+            }
+        }
+        Unit from = result.units[0];
+        Unit to = (result.target == null ? from.counterpart : result.target);
+        if(to.dimension != from.dimension){
+            return String.format("Cannot convert %s to %s.", from.name, to.name);
+        }
+        double value = toBase(result);
+        value = (value - to.offset)/to.factor;
+        if(!(Math.abs(value) < MAX_RESULT)){
+            return "The result is too large.";
+        }
+        StringBuilder builder = builders.get();
+        builder.setLength(0);
+        builder.append("``").append(input, skipSpaces(input, 0), result.quantityEnd).append("`` == ``");
+        appendQuantity(builder, value, to);
+        return builder.append("``").toString();
+    }
+    public static String convertHeight(String input){ // the /height reply, formats are those of the regex based version
+        Parsed result = parsed.get();
+        if(parse(input, result) != null || result.target != null || result.units[0].dimension != Dimension.LENGTH){
+            return "Invalid format!";
+        }
+        double centimetres = toBase(result)*100;
+        if(centimetres >= MAX_RESULT){
+            return "Invalid format!";
+        }
+        StringBuilder builder = builders.get();
+        builder.setLength(0);
+        Unit first = result.units[0];
+        if(first == FOOT || first == INCH || first == YARD || first == MILE){ // imperial in, metric out
+            builder.append("``").append(input, skipSpaces(input, 0), result.quantityEnd).append("`` == ``");
+            appendNumber(builder, centimetres, 2, true);
+            return builder.append(" cm``").toString();
+        }
+        int feet = (int) ((int)(centimetres)/30.48);
+        double inches = (centimetres-feet*30.48)/2.54;
+        builder.append("``");
+        appendNumber(builder, centimetres/100, 2, true);
+        builder.append(" m`` == ``");
+        appendNumber(builder, centimetres, 1, true);
+        builder.append(" cm`` == ``").append(feet).append('\'');
+        appendNumber(builder, inches, 2, true);
+        return builder.append("``").toString();
+    }
+    public static List<Unit> suggest(String value, String prefix){ // autocomplete for /convert, units of the dimension of value first
+        Dimension dimension = null;
+        Unit from = null;
+        Parsed result = parsed.get();
+        if(value != null && parse(value, result) == null){
+            from = result.units[0];
+            dimension = from.dimension;
+        }
+        String start = (prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT));
+        List<Unit> suggestions = new ArrayList<>();
+        for(int pass = 0; pass < 2; pass++){ // prefix matches, then substring matches
+            for(Unit unit : UNITS){
+                if(suggestions.size() == MAX_SUGGESTIONS){
+                    return suggestions;
+                }
+                if(unit == from || (dimension != null && unit.dimension != dimension) || suggestions.contains(unit)){
+                    continue;
+                }
+                if(pass == 0 ? matchesPrefix(unit, start) : unit.name.contains(start)){
+                    suggestions.add(unit);
+                }
+            }
+        }
+        return suggestions;
+    }
+    private static boolean matchesPrefix(Unit unit, String prefix){
+        if(unit.symbol.toLowerCase(Locale.ROOT).startsWith(prefix) || unit.name.startsWith(prefix)){
+            return true;
+        }
+        for(String alias : unit.aliases){
+            if(alias.startsWith(prefix)){
+                return true;
+            }
+        }
+        return false;
+    }
+    static String parse(String input, Parsed result){ // null on success, otherwise the reply
+        result.parts = 0;
+        result.target = null;
+        result.negative = false;
+        int length = input.length();
+        int i = skipSpaces(input, 0);
+        if(i < length && (input.charAt(i) == '-' || input.charAt(i) == '+')){
+            result.negative = (input.charAt(i) == '-');
+            i++;
+        }
+        while(true){
+            if(result.parts == MAX_PARTS){
+                return INVALID;
+            }
+            // number: digits with an optional fraction after a dot or a comma
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = 0;
+            while(i < length && isDigit(input.charAt(i))){
+                if(++digits > MAX_INTEGER_DIGITS){
+                    return "The number is too large.";
+                }
+                mantissa = mantissa*10 + (input.charAt(i++) - '0');
+            }
+            if(digits > 0 && i+1 < length && (input.charAt(i) == '.' || input.charAt(i) == ',') && isDigit(input.charAt(i+1))){
+                i++;
+                while(i < length && isDigit(input.charAt(i))){
+                    if(fractionDigits < POW10.length-1){ // further digits do not change the output
+                        mantissa = mantissa*10 + (input.charAt(i) - '0');
+                        fractionDigits++;
+                    }
+                    i++;
+                }
+            }
+            if(digits == 0){
+                return INVALID;
+            }
+            double number = (double) mantissa/POW10[fractionDigits];
+            int numberEnd = i;
+            i = skipSpaces(input, i);
+            // unit: one token, or two for units like "fl oz", or nothing after feet and stones
+            int start = i;
+            if(i < length && (input.charAt(i) == '\'' || input.charAt(i) == '"')){
+                i++;
+            }else{
+                while(i < length && !isSeparator(input.charAt(i))){
+                    i++;
+                }
+            }
+            Unit unit;
+            if(start == i){
+                Unit previous = (result.parts == 0 ? null : result.units[result.parts-1]);
+                if(previous == null || previous.companion == null){
+                    return INVALID;
+                }
+                unit = previous.companion;
+                i = numberEnd;
+            }else{
+                unit = lookup(input, start, i);
+                int next = wordEnd(input, i);
+                if(next > i){ // "fl oz", "degrees celsius", "metric ton"
+                    Unit twoWords = lookup(input, start, next);
+                    if(twoWords != null){
+                        unit = twoWords;
+                        i = next;
+                    }
+                }
+                if(unit == null){
+                    return String.format("Unknown unit ``%s``.", input.substring(start, i));
+                }
+            }
+            if(result.parts > 0 && (unit.dimension != result.units[0].dimension || unit.dimension == Dimension.TEMPERATURE)){
+                return INVALID;
+            }
+            if(result.negative && unit.dimension != Dimension.TEMPERATURE){
+                return "Only temperatures can be negative.";
+            }
+            result.units[result.parts] = unit;
+            result.values[result.parts++] = number;
+            result.quantityEnd = i;
+            i = skipSpaces(input, i);
+            if(i == length){
+                return null;
+            }
+            int keywordEnd = (input.startsWith("->", i) ? i+2 : (input.regionMatches(true, i, "to ", 0, 3) ? i+2 : -1));
+            if(keywordEnd > 0){ // target clause, the rest of the input is a unit
+                int targetStart = skipSpaces(input, keywordEnd);
+                int targetEnd = length;
+                while(targetEnd > targetStart && input.charAt(targetEnd-1) == ' '){
+                    targetEnd--;
+                }
+                result.target = lookup(input, targetStart, targetEnd);
+                return (result.target == null ? String.format("Unknown unit ``%s``.", input.substring(targetStart, targetEnd)) : null);
+            }
+        }
+    }
+    private static double toBase(Parsed result){
+        double value = 0;
+        for(int i = 0; i < result.parts; i++){
+            value += result.values[i]*result.units[i].factor;
+        }
+        return (result.negative ? -value : value) + result.units[0].offset;
+    }
+    private static void appendQuantity(StringBuilder builder, double value, Unit unit){
+        if(unit.companion == null){
+            appendNumber(builder, value, decimals(value), false);
+            builder.append(' ').append(unit.symbol);
+            return;
+        }
+        double absolute = Math.abs(value);
+        double ratio = unit.factor/unit.companion.factor; // 12 inches in a foot
+        long whole = (long) absolute;
+        double rest = (absolute - whole)*ratio;
+        if(Math.round(rest*100) >= Math.round(ratio*100)){ // 5 ft 12.00 in
+            whole++;
+            rest = 0;
+        }
+        if(value < 0){
+            builder.append('-');
+        }
+        builder.append(whole).append(' ').append(unit.symbol).append(' ');
+        appendNumber(builder, rest, 2, false);
+        builder.append(' ').append(unit.companion.symbol);
+    }
+    private static int decimals(double value){ // about three significant digits for small values
+        double absolute = Math.abs(value);
+        return (absolute >= 1 || absolute == 0 ? 2 : (absolute >= 0.01 ? 4 : 6));
+    }
+    static void appendNumber(StringBuilder builder, double value, int decimals, boolean fixed){ // like %.Nf, fixed keeps trailing zeros
+        long scale = POW10[decimals];
+        long scaled = Math.round(Math.abs(value)*scale);
+        if(value < 0 && scaled != 0){
+            builder.append('-');
+        }
+        builder.append(scaled/scale);
+        long fraction = scaled%scale;
+        if(fraction != 0 || (fixed && decimals > 0)){
+            builder.append('.');
+            for(long digit = scale/10; digit > 0 && (fixed || fraction != 0); digit /= 10){
+                builder.append((char) ('0' + fraction/digit));
+                fraction %= digit;
+            }
+        }
+    }
+    private static boolean isDigit(char c){
+        return c >= '0' && c <= '9';
+    }
+    private static boolean isSeparator(char c){ // ends a unit token
+        return c == ' ' || c == '-' || isDigit(c);
+    }
+    private static int skipSpaces(String input, int i){
+        while(i < input.length() && input.charAt(i) == ' '){
+            i++;
+        }
+        return i;
+    }
+    private static int wordEnd(String input, int i){ // end of the word after a single space, or i
+        if(i+1 >= input.length() || input.charAt(i) != ' ' || isSeparator(input.charAt(i+1))){
+            return i;
+        }
+        int end = i+1;
+        while(end < input.length() && !isSeparator(input.charAt(end))){
+            end++;
+        }
+        return end;
+    }
+}
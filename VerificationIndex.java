@@ -0,0 +1,176 @@
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.UserSnowflake;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.exceptions.PermissionException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// per-guild index of members still waiting for the verification role, ordered by the time they become eligible
+public final class VerificationIndex{
+    static final long RETRY_DELAY = 60000; // [ms] before retrying a failed grant
+    private static final ConcurrentHashMap<String, VerificationIndex> guilds = new ConcurrentHashMap<>();
+    private final String guildId;
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>(); // member id -> eligible at [epoch ms]
+    private final ConcurrentSkipListSet<Due> queue = new ConcurrentSkipListSet<>();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet(); // grants already queued to discord
+    private ScheduledFuture<?> sweep;
+    private long sweepAt = Long.MAX_VALUE;
+    private record Due(long at, long memberId) implements Comparable<Due>{
+        public int compareTo(Due other){
+            int byTime = Long.compare(at, other.at);
+            return (byTime != 0 ? byTime : Long.compare(memberId, other.memberId));
+        }
+    }
+    private VerificationIndex(String guildId){
+        this.guildId = guildId;
+    }
+    private static VerificationIndex of(Guild guild){
+        return guilds.computeIfAbsent(guild.getId(), VerificationIndex::new);
+    }
+    public static void rebuild(Guild guild){ // on startup and whenever the verification settings change
+        VerificationIndex index = of(guild);
+        index.clear();
+        GuildSettings settings = GuildSettings.of(guild);
+        if(settings == null || settings.verifyTime <= 0 || guild.getRoleById(settings.verifyRole) == null){
+            return;
+        }
+        guild.loadMembers().onSuccess(members -> members.forEach(VerificationIndex::track));
+    }
+    public static boolean awaitingRole(Member member){ // also decides which members the lean cache keeps, see MemberCache
+        GuildSettings settings = GuildSettings.of(member.getGuild());
+        if(settings == null || settings.verifyTime <= 0 || member.getUser().isBot()){
+            return false;
+        }
+        Role role = member.getGuild().getRoleById(settings.verifyRole);
+        if(role == null){
+            return false;
+        }
+        return !member.getRoles().contains(role);
+    }
+    public static void track(Member member){
+        if(!awaitingRole(member)){
+            return;
+        }
+        GuildSettings settings = GuildSettings.of(member.getGuild());
+        long at = member.getTimeJoined().toInstant().toEpochMilli() + settings.verifyTime*1000L;
+        of(member.getGuild()).add(member.getIdLong(), at);
+    }
+    public static void untrack(Guild guild, long memberId){
+        VerificationIndex index = guilds.get(guild.getId());
+        if(index != null){
+            index.remove(memberId);
+        }
+    }
+    public static void onMessage(Member member){ // a single map lookup for everyone who is already verified
+        VerificationIndex index = guilds.get(member.getGuild().getId());
+        if(index == null){
+            return;
+        }
+        Long at = index.pending.get(member.getIdLong());
+        if(at != null && at <= System.currentTimeMillis()){
+            index.grant(member.getGuild(), member.getIdLong());
+        }
+    }
+    private void add(long memberId, long at){
+        Long previous = pending.put(memberId, at);
+        if(previous != null){
+            queue.remove(new Due(previous, memberId));
+        }
+        queue.add(new Due(at, memberId));
+        scheduleSweep(at);
+    }
+    private void remove(long memberId){
+        Long at = pending.remove(memberId);
+        if(at != null){
+            queue.remove(new Due(at, memberId));
+        }
+    }
+    private synchronized void clear(){
+        pending.clear();
+        queue.clear();
+        if(sweep != null){
+            sweep.cancel(false);
+        }
+        sweepAt = Long.MAX_VALUE;
+    }
+    private synchronized void scheduleSweep(long at){
+        if(at >= sweepAt){
+            return;
+        }
+        if(sweep != null){
+            sweep.cancel(false);
+        }
+        sweepAt = at;
+        sweep = Shards.executor(guildId).schedule(this::sweep, Math.max(0, at - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+    private void sweep(){
+        synchronized(this){
+            sweep = null;
+            sweepAt = Long.MAX_VALUE;
+        }
+        Guild guild = Shards.guild(guildId);
+        long now = System.currentTimeMillis();
+        Due due;
+        while((due = queue.pollFirst()) != null){
+            if(due.at > now){
+                queue.add(due);
+                scheduleSweep(due.at);
+                break;
+            }
+            if(guild == null){
+                pending.remove(due.memberId, due.at);
+            }else{
+                grant(guild, due.memberId);
+            }
+        }
+    }
+    private void grant(Guild guild, long memberId){
+        GuildSettings settings = GuildSettings.of(guild);
+        Role role = (settings == null ? null : guild.getRoleById(settings.verifyRole));
+        if(role == null){
+            remove(memberId);
+            return;
+        }
+        if(!inFlight.add(memberId)){
+            return;
+        }
+        RestAction<Void> action;
+        try{
+            action = guild.addRoleToMember(UserSnowflake.fromId(memberId), role);
+        }catch(PermissionException e){ // the bot lacks manage roles or the role is above its own, retrying cannot help
+            inFlight.remove(memberId);
+            remove(memberId);
+            Bot.logger.warn("Unable to give the verification role to user {} in server {}, dropped until the next rebuild. {}", memberId, guild.getName(), e.getMessage());
+            return;
+        }
+        action.queue(
+            (success) -> {
+                inFlight.remove(memberId);
+                remove(memberId);
+            },
+            (failure) -> {
+                inFlight.remove(memberId);
+                if(failure instanceof ErrorResponseException error && error.getErrorResponse() == ErrorResponse.UNKNOWN_MEMBER){
+                    remove(memberId);
+                    return;
+                }
+                if(failure instanceof ErrorResponseException error && (error.getErrorResponse() == ErrorResponse.MISSING_PERMISSIONS || error.getErrorResponse() == ErrorResponse.UNKNOWN_ROLE)){
+                    remove(memberId); // permissions changed after jda's check, same as above
+                    Bot.logger.warn("Unable to give the verification role to user {} in server {}, dropped until the next rebuild. {}", memberId, guild.getName(), failure.toString());
+                    return;
+                }
+                Bot.logger.warn("Unable to give the verification role to user {} in server {}, retrying.", memberId, guild.getName());
+                add(memberId, System.currentTimeMillis() + RETRY_DELAY);
+            }
+        );
+    }
+}
@@ -0,0 +1,100 @@
+package benchmarks;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+// jmh refuses benchmarks in the default package and named packages cannot import it, so the bot is reached through method handles
+// the handles are static final, the jit inlines them and the indirection does not show up in the results
+final class BotHandles{
+    static final String DATA = System.getProperty("bot.data", "data"); // same property as Bot.DATA
+    static final MethodHandle PROCESS_DURATION = method("Bot", "processDuration", MethodType.methodType(int.class, String.class));
+    static final MethodHandle PARSE_COMMA_DOUBLE = method("Bot", "parseCommaDouble", MethodType.methodType(double.class, String.class));
+    static final MethodHandle CONVERT_HEIGHT = method("Bot", "convertHeight", MethodType.methodType(String.class, String.class));
+    static final MethodHandle UNITS_CONVERT = method("Units", "convert", MethodType.methodType(String.class, String.class, String.class));
+    static final MethodHandle DICE_COMPILE = method("Dice", "compile", "Dice", String.class); // (String)Object
+    static final MethodHandle DICE_ROLL = virtual("Dice", "roll", MethodType.methodType(String.class)); // (Object)String
+    static final MethodHandle SETTINGS_OF = method("GuildSettings", "of", "GuildSettings", String.class); // (String)Object
+    static final MethodHandle SETTINGS_SETTING = virtual("GuildSettings", "setting", MethodType.methodType(String.class, int.class)); // (Object, int)String
+    static final MethodHandle SETTINGS_CHANNEL = virtual("GuildSettings", "channel", MethodType.methodType(String.class, int.class)); // (Object, int)String
+    static final MethodHandle STORAGE_BANS = method("Storage", "bans", "JournaledTable", String.class); // (String)Object
+    static final MethodHandle TABLE_REMOVE = virtual("JournaledTable", "remove", MethodType.methodType(Object.class, String.class)); // (Object, String)Object
+    static final MethodHandle TABLE_PUT = virtual("JournaledTable", "put", MethodType.methodType(void.class, Object.class)); // (Object, Object)void
+    static final MethodHandle TABLE_FLUSH = virtual("JournaledTable", "flush", MethodType.methodType(void.class)); // (Object)void
+    static final MethodHandle TABLE_CLOSE = virtual("JournaledTable", "close", MethodType.methodType(void.class)); // (Object)void
+    static final MethodHandle MEMBER_CACHE_LEAN = getter("MemberCache", "LEAN", MemberCachePolicy.class); // ()MemberCachePolicy
+    static final MethodHandle RAID_DETECTOR_NEW = constructor("RaidDetector"); // ()Object
+    static final MethodHandle RAID_DETECTOR_JOIN = virtual("RaidDetector", "join", MethodType.methodType(int.class, long.class, long.class)); // (Object, long, long)int
+    static final MethodHandle LANGUAGE_DETECTOR_NEW = constructor("LanguageDetector", Map.class); // (Map)Object
+    static final MethodHandle LANGUAGE_DETECTOR_DETECT = virtual("LanguageDetector", "detect", MethodType.methodType(String.class, CharSequence.class)); // (Object, CharSequence)String
+    static final MethodHandle LISTENER_NEW = constructor("TimedEventListener", EventListener.class); // (EventListener)Object
+    static final MethodHandle BOT_NEW = constructor("Bot"); // ()Object
+    static final MethodHandle BOOTSTRAP_GUILDS = method("Bot", "bootstrapGuilds", MethodType.methodType(CompletableFuture.class, List.class));
+    static final MethodHandle AUTOMATIC_APPEALER = method("Bot", "automaticAppealer", MethodType.methodType(void.class));
+    static final MethodHandle LOGGER_START = method("AsyncLogger", "start", MethodType.methodType(void.class, Path.class));
+    static final MethodHandle LOGGER_STOP = method("AsyncLogger", "stop", MethodType.methodType(void.class));
+    static final MethodHandle STORAGE_START = method("Storage", "start", MethodType.methodType(void.class));
+    static final MethodHandle TRANSLATION_CACHE_START = method("TranslationCache", "start", MethodType.methodType(void.class));
+    static final MethodHandle RANDOM_ARTICLE_POOL_START = method("RandomArticlePool", "start", MethodType.methodType(void.class));
+    static final MethodHandle AUTO_TRANSLATE_START = method("AutoTranslate", "start", MethodType.methodType(void.class));
+    static final MethodHandle SHARDS_EXECUTOR = method("Shards", "executor", MethodType.methodType(ScheduledExecutorService.class, long.class));
+    static final MethodHandle SHARDS_SET_SINGLE = setter("Shards", "single", JDA.class); // (JDA)void, private, for a stub session
+    static final MethodHandle SHARDS_SET_TOTAL = setter("Shards", "total", int.class); // (int)void
+    static final MethodHandle SHARDS_SET_LAST = setter("Shards", "last", int.class); // (int)void
+    private BotHandles(){}
+    private static MethodHandle method(String owner, String name, MethodType type){
+        try{
+            return MethodHandles.lookup().findStatic(type(owner), name, type);
+        }catch(ReflectiveOperationException e){
+            throw new IllegalStateException(String.format("Missing %s.%s.", owner, name), e);
+        }
+    }
+    private static MethodHandle method(String owner, String name, String returnType, Class<?> parameter){ // return types of the bot are erased to Object
+        return method(owner, name, MethodType.methodType(type(returnType), parameter)).asType(MethodType.methodType(Object.class, parameter));
+    }
+    private static MethodHandle virtual(String owner, String name, MethodType type){ // the receiver is erased to Object
+        try{
+            MethodHandle handle = MethodHandles.lookup().findVirtual(type(owner), name, type);
+            return handle.asType(handle.type().changeParameterType(0, Object.class));
+        }catch(ReflectiveOperationException e){
+            throw new IllegalStateException(String.format("Missing %s.%s.", owner, name), e);
+        }
+    }
+    private static MethodHandle constructor(String owner, Class<?>... parameters){
+        try{
+            return MethodHandles.lookup().findConstructor(type(owner), MethodType.methodType(void.class, parameters)).asType(MethodType.methodType(Object.class, parameters));
+        }catch(ReflectiveOperationException e){
+            throw new IllegalStateException(String.format("Missing %s().", owner), e);
+        }
+    }
+    private static MethodHandle getter(String owner, String name, Class<?> type){
+        try{
+            return MethodHandles.lookup().findStaticGetter(type(owner), name, type);
+        }catch(ReflectiveOperationException e){
+            throw new IllegalStateException(String.format("Missing %s.%s.", owner, name), e);
+        }
+    }
+    private static MethodHandle setter(String owner, String name, Class<?> type){ // private fields, the bot's classes are in the unnamed module like these
+        try{
+            return MethodHandles.privateLookupIn(type(owner), MethodHandles.lookup()).findStaticSetter(type(owner), name, type);
+        }catch(ReflectiveOperationException e){
+            throw new IllegalStateException(String.format("Missing %s.%s.", owner, name), e);
+        }
+    }
+    private static Class<?> type(String name){
+        try{
+            return Class.forName(name);
+        }catch(ClassNotFoundException e){
+            throw new IllegalStateException(String.format("Missing class %s.", name), e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// throughput of /height and /convert on the unit engine, against the String.matches version of /height it replaced
+// run with -prof gc to see the allocation per operation, only the reply string is allocated on the engine side
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark{
+    static final String[] HEIGHTS = {"5'11", "6'2.5", "180cm", "1,85 m", "182 cm", "tall"}; // all understood by the regex version
+    static final String[] CONVERSIONS = {"70 kg", "11 st 4 lb", "30 C", "100 km/h", "2 cups to ml", "5 ft 11 in", "1.85 m to ft", "5 fl oz"};
+    private int index = 0;
+    private int next(int length){
+        index = (index + 1 == Integer.MAX_VALUE ? 0 : index + 1);
+        return index % length;
+    }
+    @Benchmark
+    public String height() throws Throwable{
+        return (String) BotHandles.CONVERT_HEIGHT.invokeExact(HEIGHTS[next(HEIGHTS.length)]);
+    }
+    @Benchmark
+    public String legacyHeight(){
+        return legacyConvertHeight(HEIGHTS[next(HEIGHTS.length)]);
+    }
+    @Benchmark
+    public String convert() throws Throwable{
+        return (String) BotHandles.UNITS_CONVERT.invokeExact(CONVERSIONS[next(CONVERSIONS.length)], (String) null);
+    }
+    static String legacyConvertHeight(String rawInput){ // /height as of 0.4.6d
+        if(rawInput.matches("[0-9]+'[0-9]+.?[0-9]*")){
+            String[] values = rawInput.split("'");
+            double centimetres = (Double.parseDouble(values[0])*12+legacyParseCommaDouble(values[1]))*2.54;
+            return String.format(Locale.US, "``%s`` == ``%.2f cm``", rawInput, centimetres);
+        }else if(rawInput.matches("[0-9]+([.,][0-9]+)? ?c?m")){
+            double centimetres;
+            if(rawInput.contains("cm")){
+                centimetres = legacyParseCommaDouble((rawInput.substring(0, rawInput.length()-2)).trim());
+            }else{
+                centimetres = legacyParseCommaDouble((rawInput.substring(0, rawInput.length()-1)).trim())*100;
+            }
+            int feet = (int) ((int)(centimetres)/30.48);
+            double inches = (centimetres-feet*30.48)/2.54;
+            return String.format(Locale.US, "``%.2f m`` == ``%.1f cm`` == ``%d'%.2f``", centimetres/100, centimetres, feet, inches);
+        }
+        return "Invalid format!";
+    }
+    static double legacyParseCommaDouble(String string){
+        if(!string.trim().matches("[0-9]+([.,][0-9]+)?")){
+            throw new IllegalArgumentException();
+        }
+        return Double.parseDouble(string.trim().replace(',', '.'));
+    }
+}
@@ -0,0 +1,156 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// the language detector of auto-translate channels over the local corpus in data/languages
+// main() cross-validates: every sentence is classified by a detector trained without it, in full and cut to its first words
+// the jmh benchmark measures one classification of a held-out sentence
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LanguageDetectorBenchmark{
+    static final int FOLDS = 5;
+    static final int TIMING_ROUNDS = 200; // passes over the held-out sentences for the throughput column, the first ones warm up the jit
+    static final String ENGLISH = "EN";
+    @Param({"0", "4"})
+    public int words; // 0 - whole sentences, otherwise the first words only, like a short chat message
+    private Object detector; // LanguageDetector
+    private String[] messages;
+    private int next = 0;
+    record Sample(String language, String text){}
+    @Setup
+    public void setup() throws Throwable{
+        Map<String, List<String>> corpus = corpus(Paths.get(BotHandles.DATA, "languages"));
+        detector = (Object) BotHandles.LANGUAGE_DETECTOR_NEW.invokeExact(fold(corpus, 0, false));
+        List<String> heldOut = new ArrayList<>();
+        for(List<String> sentences : fold(corpus, 0, true).values()){
+            for(String sentence : sentences){
+                heldOut.add(cut(sentence, words));
+            }
+        }
+        messages = heldOut.toArray(new String[0]);
+    }
+    @Benchmark
+    public String detect() throws Throwable{
+        String message = messages[next];
+        next = (next + 1 == messages.length ? 0 : next + 1);
+        return (String) BotHandles.LANGUAGE_DETECTOR_DETECT.invokeExact(detector, (CharSequence) message);
+    }
+    public static void main(String[] args) throws Throwable{ // [corpus directory]
+        Path directory = (args.length > 0 ? Paths.get(args[0]) : Paths.get(BotHandles.DATA, "languages"));
+        Map<String, List<String>> corpus = corpus(directory);
+        System.out.printf("%d languages, %d sentences, %d-fold cross-validation%n%n", corpus.size(), corpus.values().stream().mapToInt(List::size).sum(), FOLDS);
+        System.out.printf("%-16s %8s %8s %8s %10s %10s %12s%n", "messages", "correct", "unsure", "wrong", "en -> api", "missed", "detect/s");
+        for(int cut : new int[]{0, 6, 4, 2}){
+            evaluate(corpus, cut);
+        }
+    }
+    static void evaluate(Map<String, List<String>> corpus, int words) throws Throwable{
+        // "en -> api" - english messages sent to deepl for nothing, "missed" - foreign messages taken for english or left alone
+        int total = 0, correct = 0, unsure = 0, wrong = 0, needless = 0, missed = 0;
+        long nanos = 0;
+        long detections = 0;
+        for(int fold = 0; fold < FOLDS; fold++){
+            Object trained = (Object) BotHandles.LANGUAGE_DETECTOR_NEW.invokeExact(fold(corpus, fold, false));
+            List<Sample> samples = new ArrayList<>();
+            fold(corpus, fold, true).forEach((language, sentences) -> sentences.forEach(sentence -> samples.add(new Sample(language, cut(sentence, words)))));
+            long start = System.nanoTime();
+            for(int round = 0; round < TIMING_ROUNDS; round++){
+                for(Sample sample : samples){
+                    String ignored = (String) BotHandles.LANGUAGE_DETECTOR_DETECT.invokeExact(trained, (CharSequence) sample.text());
+                }
+            }
+            nanos += System.nanoTime() - start;
+            detections += (long) TIMING_ROUNDS*samples.size();
+            for(Sample sample : samples){
+                String detected = (String) BotHandles.LANGUAGE_DETECTOR_DETECT.invokeExact(trained, (CharSequence) sample.text());
+                total++;
+                if(detected == null){
+                    unsure++;
+                }else if(detected.equals(sample.language())){
+                    correct++;
+                }else{
+                    wrong++;
+                }
+                boolean english = sample.language().equals(ENGLISH);
+                if(english && detected != null && !detected.equals(ENGLISH)){
+                    needless++;
+                }
+                if(!english && (detected == null || detected.equals(ENGLISH))){
+                    missed++;
+                }
+            }
+        }
+        System.out.printf(Locale.US, "%-16s %7.1f%% %7.1f%% %7.1f%% %10d %9.1f%% %12.0f%n", (words == 0 ? "whole sentences" : "first " + words + " words"),
+                100.0*correct/total, 100.0*unsure/total, 100.0*wrong/total, needless, 100.0*missed/total, detections/(nanos/1e9));
+    }
+    static Map<String, List<String>> corpus(Path directory) throws IOException{ // language code -> sentences, as LanguageDetector.load reads them
+        Map<String, List<String>> corpus = new TreeMap<>();
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.txt")){
+            for(Path file : files){
+                String name = file.getFileName().toString();
+                List<String> sentences = new ArrayList<>();
+                for(String line : Files.readAllLines(file, StandardCharsets.UTF_8)){
+                    if(!line.isBlank()){
+                        sentences.add(line);
+                    }
+                }
+                corpus.put(name.substring(0, name.length() - 4).toUpperCase(), sentences);
+            }
+        }
+        if(corpus.isEmpty()){
+            throw new IOException("No language samples in " + directory);
+        }
+        return corpus;
+    }
+    static Map<String, List<String>> fold(Map<String, List<String>> corpus, int fold, boolean heldOut){ // every FOLDS-th sentence is held out
+        Map<String, List<String>> part = new HashMap<>();
+        corpus.forEach((language, sentences) -> {
+            List<String> selected = new ArrayList<>();
+            for(int i = 0; i < sentences.size(); i++){
+                if((i % FOLDS == fold) == heldOut){
+                    selected.add(sentences.get(i));
+                }
+            }
+            part.put(language, selected);
+        });
+        return part;
+    }
+    static String cut(String sentence, int words){ // japanese and korean are cut by characters, a word is about three of them
+        if(words == 0){
+            return sentence;
+        }
+        String[] split = sentence.split("\\s+");
+        if(split.length == 1){
+            return sentence.substring(0, Math.min(sentence.length(), words*3));
+        }
+        return String.join(" ", List.of(split).subList(0, Math.min(split.length, words)));
+    }
+}
@@ -0,0 +1,545 @@
+package benchmarks;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.SelfUser;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.entities.channel.unions.GuildMessageChannelUnion;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.interactions.DiscordLocale;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.InteractionType;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.utils.data.DataObject;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// offline load test of the gateway event handlers: messages, slash commands, joins and leaves across thousands of synthetic guilds
+// at fixed rates, on the shard executors the bot uses in production, after the bootstrap and the appeal timers of every guild
+// jda's rest actions complete in-process (see Stubs), deepl and wikipedia are served by a local stub server (see StubHttpServer)
+// latencies run from the scheduled arrival of an event, so a backlog on a shard shows up in them instead of slowing the generator
+// usage: LoadTest [key=value ...], see DEFAULTS, e.g. LoadTest guilds=5000 messages=5000 seconds=60 maxP99=50
+public final class LoadTest{
+    static final Map<String, String> DEFAULTS = defaults();
+    static final String[] EVENTS = {"message", "command", "join", "leave"};
+    static final String[] DICE = {"1d6", "2d20kh1", "4d6kl3", "3d8+2", "1d100", "2d6!"};
+    static final String[] HEIGHTS = {"180 cm", "1.75 m", "5'11", "6 ft 2 in", "71 in"};
+    static final String[] VALUES = {"70 kg", "30 C", "100 km/h", "2 cups to ml", "5 ft 11 in", "10 mi"};
+    static final String[] TARGETS = {"DE", "FR", "ES", "JA", "PL"};
+    static final String[] WIKIPEDIAS = {"en", "en", "en", "de", "fr", "ja"};
+    static final Set<String> HARNESS_THREADS = Set.of("loadtest-generator", "stub-http", "stub-deepl", "stub-wikipedia", "HTTP-Dispatcher"); // left out of the bot's allocation rate
+    static final long FIRST_JOINER = SyntheticData.FIRST_USER + 100000000L; // users that join during the test
+    static final long BOT_USER = SyntheticData.FIRST_USER - 1;
+    private final Map<String, String> options;
+    private final Random random = new Random(SyntheticData.SEED);
+    private final TLongObjectHashMap<Guild> guilds = new TLongObjectHashMap<>();
+    private final List<Guild> guildList = new ArrayList<>();
+    private final Map<Long, Object> channels = new HashMap<>(); // TextChannel and MessageChannelUnion, by id
+    private final JDA jda;
+    private final EventListener listener;
+    private final List<String> english;
+    private final List<String> foreign;
+    private final String[] mix; // command names, repeated by weight
+    private final AtomicLong ids = new AtomicLong(SyntheticData.FIRST_GUILD*5); // messages and interactions
+    private final AtomicLong joiners = new AtomicLong(FIRST_JOINER);
+    private final ConcurrentHashMap<String, Latencies> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>(); // issued and answered commands
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder handlerErrors = new LongAdder();
+    private volatile boolean running = true;
+    private volatile boolean recording = true;
+    static Map<String, String> defaults(){
+        Map<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("guilds", "2000");
+        defaults.put("shards", "4");
+        defaults.put("bans", "20"); // per guild, most of them due for an appeal
+        defaults.put("warmup", "10"); // [s] not recorded, the appeal backlog of the bootstrap is sent out here
+        defaults.put("seconds", "30"); // [s] recorded
+        defaults.put("messages", "1000"); // [1/s]
+        defaults.put("commands", "100"); // [1/s]
+        defaults.put("joins", "50"); // [1/s]
+        defaults.put("leaves", "20"); // [1/s]
+        defaults.put("translated", "0.05"); // share of the messages sent to auto-translate channels
+        defaults.put("foreign", "0.5"); // share of those that are not in english
+        defaults.put("mix", "roll:4,height:2,convert:2,tr:1,random:1"); // commands with their weights
+        defaults.put("restLatency", "20"); // [ms] of every stub rest action
+        defaults.put("upstreamLatency", "50"); // [ms] of the stub deepl and wikipedia
+        defaults.put("maxP99", "0"); // [ms] exit with 1 when the p99 of an event type is above it, 0 - no check
+        defaults.put("data", "target/loadtest-data"); // synthetic data tree, wiped first
+        defaults.put("corpus", "data/languages"); // chat sentences for messages and /tr, also trains the language detector
+        return defaults;
+    }
+    public static void main(String[] args) throws Throwable{
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for(String arg : args){
+            String[] pair = arg.split("=", 2);
+            if(pair.length != 2 || !DEFAULTS.containsKey(pair[0])){
+                System.err.printf("Unknown option %s, known: %s%n", arg, String.join(", ", DEFAULTS.keySet()));
+                System.exit(2);
+            }
+            options.put(pair[0], pair[1]);
+        }
+        if(System.getenv("DEEPL_URL") == null || System.getenv("WIKIPEDIA_URL") == null || !Boolean.parseBoolean(System.getenv("MESSAGE_CONTENT"))){
+            System.exit(relaunch(args)); // Http reads its base urls and Shards the intent flag from the environment once
+        }
+        System.setProperty("bot.data", options.get("data")); // before the first use of a bot class, Bot.DATA is final
+        System.exit(new LoadTest(options).run());
+    }
+    static int relaunch(String[] args) throws IOException, InterruptedException{ // the same jvm again, pointed at two free local ports
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.addAll(List.of("-cp", System.getProperty("java.class.path"), LoadTest.class.getName()));
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder builder = new ProcessBuilder(command).inheritIO();
+        builder.environment().put("DEEPL_URL", "http://127.0.0.1:" + freePort());
+        builder.environment().put("WIKIPEDIA_URL", "http://127.0.0.1:" + freePort() + "/%s");
+        builder.environment().putIfAbsent("DEEPL", "loadtest");
+        builder.environment().put("MESSAGE_CONTENT", "true"); // auto-translation is off without it
+        return builder.start().waitFor();
+    }
+    static int freePort() throws IOException{
+        try(ServerSocket socket = new ServerSocket(0)){
+            return socket.getLocalPort();
+        }
+    }
+    LoadTest(Map<String, String> options) throws Throwable{
+        this.options = options;
+        Map<String, List<String>> corpus = LanguageDetectorBenchmark.corpus(Paths.get(options.get("corpus")));
+        english = corpus.getOrDefault("EN", List.of("hello everyone, how is it going today?"));
+        foreign = new ArrayList<>();
+        corpus.forEach((language, sentences) -> {
+            if(!language.equals("EN")){
+                foreign.addAll(sentences);
+            }
+        });
+        List<String> weighted = new ArrayList<>();
+        for(String entry : options.get("mix").split(",")){
+            String[] pair = entry.split(":");
+            for(int i = 0; i < (pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1); i++){
+                weighted.add(pair[0].trim());
+            }
+        }
+        mix = weighted.toArray(new String[0]);
+        Stubs.restLatency = number("restLatency");
+        jda = Stubs.entity(JDA.class, Map.of(
+            "getGuildById", (Stubs.Answer) args -> guilds.get(args[0] instanceof String id ? Long.parseLong(id) : (Long) args[0]),
+            "getGuilds", guildList,
+            "getStatus", JDA.Status.CONNECTED,
+            "getShardInfo", new JDA.ShardInfo(0, 1),
+            "getSelfUser", Stubs.entity(SelfUser.class, snowflake(BOT_USER, "getName", "International Bot", "isBot", true))));
+        listener = (EventListener) (Object) BotHandles.LISTENER_NEW.invokeExact((EventListener) (Object) BotHandles.BOT_NEW.invokeExact());
+    }
+    int run() throws Throwable{
+        int guildCount = (int) number("guilds");
+        int shards = (int) number("shards");
+        Path data = Paths.get(options.get("data"));
+        System.out.printf("Load test %s%n", options);
+        long start = System.nanoTime();
+        SyntheticData.generate(data, guildCount, (int) number("bans"));
+        copyCorpus(Paths.get(options.get("corpus")), data.resolve("languages"));
+        System.out.printf("Generated %d guilds in %s in %d ms.%n", guildCount, data.toAbsolutePath(), (System.nanoTime() - start)/1000000);
+        StubHttpServer upstream = new StubHttpServer(port(System.getenv("DEEPL_URL")), port(String.format(System.getenv("WIKIPEDIA_URL"), "en")), number("upstreamLatency"));
+        BotHandles.LOGGER_START.invokeExact(data.resolve("logs"));
+        BotHandles.SHARDS_SET_SINGLE.invokeExact(jda); // every shard id resolves to the stub session, the guilds still route by shard
+        BotHandles.SHARDS_SET_TOTAL.invokeExact(shards);
+        BotHandles.SHARDS_SET_LAST.invokeExact(shards - 1);
+        BotHandles.STORAGE_START.invokeExact();
+        BotHandles.TRANSLATION_CACHE_START.invokeExact();
+        BotHandles.RANDOM_ARTICLE_POOL_START.invokeExact();
+        BotHandles.AUTO_TRANSLATE_START.invokeExact();
+        for(int i = 0; i < guildCount; i++){
+            Guild guild = guild(i);
+            guilds.put(guild.getIdLong(), guild);
+            guildList.add(guild);
+        }
+        start = System.nanoTime();
+        ((CompletableFuture<?>) BotHandles.BOOTSTRAP_GUILDS.invokeExact((List<?>) guildList)).join();
+        long bootstrap = System.nanoTime() - start;
+        start = System.nanoTime();
+        BotHandles.AUTOMATIC_APPEALER.invokeExact();
+        System.out.printf("Bootstrap of %d guilds in %d ms, appeal timers armed in %d ms.%n", guildCount, bootstrap/1000000, (System.nanoTime() - start)/1000000);
+        Thread generator = new Thread(this::generate, "loadtest-generator");
+        generator.setDaemon(true);
+        generator.start();
+        Thread.sleep(number("warmup")*1000);
+        recording = false;
+        Map<String, Long> warmup = Stubs.calls();
+        System.out.printf("Warm-up: %d appeals opened, %d rest actions queued.%n", warmup.getOrDefault("Guild.retrieveBan", 0L), warmup.values().stream().mapToLong(Long::longValue).sum());
+        latencies.clear();
+        counts.clear();
+        Stubs.resetCalls();
+        long deeplRequests = upstream.deeplRequests.sum(), deeplTexts = upstream.deeplTexts.sum(), wikipediaRequests = upstream.wikipediaRequests.sum();
+        Map<String, Long> allocatedBefore = allocated();
+        long gcCount = gcCount(), gcMillis = gcMillis();
+        recording = true;
+        start = System.nanoTime();
+        Thread.sleep(number("seconds")*1000);
+        running = false;
+        generator.join();
+        double elapsed = (System.nanoTime() - start)/1e9;
+        Map<String, Long> allocatedAfter = allocated();
+        gcCount = gcCount() - gcCount;
+        gcMillis = gcMillis() - gcMillis;
+        long drain = System.nanoTime();
+        while(finished.sum() < submitted.sum() && System.nanoTime() - drain < TimeUnit.SECONDS.toNanos(30)){
+            Thread.sleep(10);
+        }
+        drain = System.nanoTime() - drain;
+        Thread.sleep(3*(number("restLatency") + number("upstreamLatency")) + 500); // replies still on their way through the stubs
+        int exit = report(elapsed, drain);
+        System.out.printf("%nStub upstream: %d deepl requests with %d texts, %d wikipedia requests.%n", upstream.deeplRequests.sum() - deeplRequests, upstream.deeplTexts.sum() - deeplTexts,
+            upstream.wikipediaRequests.sum() - wikipediaRequests);
+        allocation(allocatedBefore, allocatedAfter, elapsed);
+        System.out.printf("GC: %d collections, %d ms (%.1f%% of the run).%n", gcCount, gcMillis, gcMillis/(elapsed*10));
+        upstream.stop();
+        BotHandles.LOGGER_STOP.invokeExact();
+        return exit;
+    }
+    private void generate(){ // open loop: every event type on its own fixed schedule, late events keep their scheduled arrival
+        long[] interval = new long[EVENTS.length];
+        long[] next = new long[EVENTS.length];
+        long now = System.nanoTime();
+        for(int kind = 0; kind < EVENTS.length; kind++){
+            double rate = Double.parseDouble(options.get(EVENTS[kind] + "s"));
+            interval[kind] = (rate > 0 ? (long) (1e9/rate) : Long.MAX_VALUE);
+            next[kind] = (rate > 0 ? now + random.nextLong(interval[kind]) : Long.MAX_VALUE);
+        }
+        while(running){
+            int kind = 0;
+            for(int k = 1; k < EVENTS.length; k++){
+                if(next[k] < next[kind]){
+                    kind = k;
+                }
+            }
+            if(next[kind] == Long.MAX_VALUE){
+                return;
+            }
+            long arrival = next[kind];
+            long wait = arrival - System.nanoTime();
+            if(wait > 0){
+                LockSupport.parkNanos(wait);
+                continue; // running may have changed
+            }
+            next[kind] += interval[kind];
+            Guild guild = guildList.get(random.nextInt(guildList.size()));
+            try{
+                submit(guild, event(EVENTS[kind], guild, arrival), EVENTS[kind], arrival);
+            }catch(Throwable e){ // a stub answer missing, the rest of the run would measure nothing
+                e.printStackTrace();
+                handlerErrors.increment();
+                return;
+            }
+        }
+    }
+    private GenericEvent event(String kind, Guild guild, long arrival){
+        long responseNumber = ids.incrementAndGet();
+        int index = SyntheticData.guildIndex(guild.getIdLong());
+        int bans = (int) number("bans");
+        return switch(kind){
+            case "message" -> {
+                boolean translated = random.nextDouble() < Double.parseDouble(options.get("translated"));
+                boolean inEnglish = !translated || random.nextDouble() >= Double.parseDouble(options.get("foreign"));
+                String text = (inEnglish ? english : foreign).get(random.nextInt((inEnglish ? english : foreign).size()));
+                long channelId = SyntheticData.channelId(index, (translated ? 5 : 0));
+                yield new MessageReceivedEvent(jda, responseNumber, message(guild, channels.get(channelId), member(guild, userId(random.nextInt(1000))), text));
+            }
+            case "join" -> new GuildMemberJoinEvent(jda, responseNumber, member(guild, joiners.incrementAndGet()));
+            case "leave" -> { // half of them banned, those leave silently
+                Member member = member(guild, userId(random.nextInt(2*Math.max(1, bans))));
+                yield new GuildMemberRemoveEvent(jda, responseNumber, guild, member.getUser(), member);
+            }
+            default -> new SlashCommandInteractionEvent(jda, responseNumber, interaction(guild, mix[random.nextInt(mix.length)], arrival));
+        };
+    }
+    private void submit(Guild guild, GenericEvent event, String kind, long arrival) throws Throwable{
+        ScheduledExecutorService executor = (ScheduledExecutorService) BotHandles.SHARDS_EXECUTOR.invokeExact(guild.getIdLong());
+        submitted.increment();
+        executor.execute(() -> {
+            try{
+                listener.onEvent(event);
+            }catch(RuntimeException e){
+                if(handlerErrors.sum() == 0){
+                    e.printStackTrace();
+                }
+                handlerErrors.increment();
+            }finally{
+                record(kind, System.nanoTime() - arrival);
+                finished.increment();
+            }
+        });
+    }
+    private void record(String name, long nanos){
+        if(recording){
+            latencies.computeIfAbsent(name, key -> new Latencies()).record(nanos);
+        }
+    }
+    private void count(String name){
+        if(recording){
+            counts.computeIfAbsent(name, key -> new LongAdder()).increment();
+        }
+    }
+    private final class Interaction implements Stubs.RestListener{ // the first reply acknowledges, the first one with content answers
+        final String command;
+        final long arrival;
+        final boolean counted = recording; // issued during the warm-up, not counted when answered later
+        volatile boolean acknowledged = false;
+        boolean answered = false;
+        Interaction(String command, long arrival){
+            this.command = command;
+            this.arrival = arrival;
+            count(command + " issued");
+        }
+        public synchronized void queued(String route, boolean content){
+            long latency = System.nanoTime() - arrival;
+            if(!acknowledged){
+                acknowledged = true;
+                record(command + " ack", latency);
+            }
+            if(content && !answered){
+                answered = true;
+                record(command + " answer", latency);
+                if(counted){
+                    count(command + " answered");
+                }
+            }
+        }
+    }
+    private Guild guild(int index){
+        long id = Long.parseLong(SyntheticData.guildId(index));
+        Guild[] self = new Guild[1];
+        Role verifyRole = Stubs.entity(Role.class, snowflake(SyntheticData.verifyRoleId(index), "getName", "verified"));
+        Map<String, Object> answers = snowflake(id, "getName", "Guild " + index, "getJDA", jda, "getOwnerIdLong", SyntheticData.FIRST_USER - 2,
+            "getTextChannelById", (Stubs.Answer) args -> channels.get(args[0] instanceof String channel ? Long.parseLong(channel) : (Long) args[0]),
+            "getRoleById", (Stubs.Answer) args -> (verifyRole.getId().equals(String.valueOf(args[0])) ? verifyRole : null),
+            "getSelfMember", (Stubs.Answer) args -> member(self[0], BOT_USER));
+        self[0] = Stubs.entity(Guild.class, answers);
+        for(int channel = 0; channel < 6; channel++){
+            long channelId = SyntheticData.channelId(index, channel);
+            channels.put(channelId, channel(self[0], channelId));
+        }
+        return self[0];
+    }
+    private Object channel(Guild guild, long id){
+        Object[] self = new Object[1];
+        self[0] = Stubs.entity(new Class<?>[]{TextChannel.class, MessageChannelUnion.class, GuildMessageChannelUnion.class}, snowflake(id, "getName", "channel-" + id, "getGuild", guild,
+            "getJDA", jda, "getType", ChannelType.TEXT, "canTalk", true, "getAsMention", "<#" + id + ">",
+            "sendMessage", new Stubs.Completes(() -> sent(self[0])), "retrieveMessageById", new Stubs.Completes(() -> sent(self[0]))), null);
+        return self[0];
+    }
+    private Message sent(Object channel){ // a message of the bot, without reactions, appeals react to theirs
+        return Stubs.entity(Message.class, snowflake(ids.incrementAndGet(), "getChannel", channel, "getJDA", jda));
+    }
+    private Message message(Guild guild, Object channel, Member author, String text){
+        return Stubs.entity(Message.class, snowflake(ids.incrementAndGet(), "getContentRaw", text, "getContentDisplay", text, "getAuthor", author.getUser(), "getMember", author,
+            "getChannel", channel, "getGuild", guild, "getGuildChannel", channel, "getChannelType", ChannelType.TEXT, "isFromGuild", true, "getJDA", jda));
+    }
+    private Member member(Guild guild, long id){
+        User user = Stubs.entity(User.class, snowflake(id, "getName", "user" + id, "getAsTag", "user" + id + "#0000", "getJDA", jda, "isBot", id == BOT_USER));
+        return Stubs.entity(Member.class, snowflake(id, "getUser", user, "getGuild", guild, "getJDA", jda, "getEffectiveName", user.getName(), "getTimeJoined", OffsetDateTime.now(),
+            "getAsMention", "<@" + id + ">"));
+    }
+    private SlashCommandInteraction interaction(Guild guild, String command, long arrival){
+        Interaction tracker = new Interaction(command, arrival);
+        Member member = member(guild, userId(random.nextInt(1000)));
+        Object channel = channels.get(SyntheticData.channelId(SyntheticData.guildIndex(guild.getIdLong()), 0));
+        List<OptionMapping> options = new ArrayList<>();
+        switch(command){
+            case "roll" -> options.add(option("dice", DICE[random.nextInt(DICE.length)]));
+            case "height" -> options.add(option("height", HEIGHTS[random.nextInt(HEIGHTS.length)]));
+            case "convert" -> options.add(option("value", VALUES[random.nextInt(VALUES.length)]));
+            case "tr" -> {
+                String text = english.get(random.nextInt(english.size()));
+                options.add(option("text", text.substring(0, Math.min(text.length(), 80))));
+                options.add(option("to", TARGETS[random.nextInt(TARGETS.length)]));
+            }
+            case "random" -> options.add(option("language", WIKIPEDIAS[random.nextInt(WIKIPEDIAS.length)]));
+            default -> {}
+        }
+        Object[] self = new Object[1];
+        InteractionHook hook = (InteractionHook) Stubs.entity(new Class<?>[]{InteractionHook.class}, Map.of("getJDA", jda, "getInteraction", (Stubs.Answer) args -> self[0]), tracker);
+        self[0] = Stubs.entity(new Class<?>[]{SlashCommandInteraction.class}, snowflake(ids.incrementAndGet(), "getName", command, "getOptions", options, "getUser", member.getUser(),
+            "getMember", member, "getGuild", guild, "getChannel", channel, "getGuildChannel", channel, "getMessageChannel", channel, "getHook", hook, "getJDA", jda,
+            "isAcknowledged", (Stubs.Answer) args -> tracker.acknowledged, "getType", InteractionType.COMMAND, "getTypeRaw", InteractionType.COMMAND.getKey(),
+            "getCommandType", Command.Type.SLASH, "getUserLocale", DiscordLocale.ENGLISH_US, "getGuildLocale", DiscordLocale.ENGLISH_US, "getToken", "loadtest"), tracker);
+        return (SlashCommandInteraction) self[0];
+    }
+    private static OptionMapping option(String name, String value){
+        return new OptionMapping(DataObject.empty().put("type", OptionType.STRING.getKey()).put("name", name).put("value", value), new TLongObjectHashMap<>(), null, null); // jda's own classes only, for the mentions of the value
+    }
+    private static Map<String, Object> snowflake(long id, Object... answers){ // answers of an entity with an id, then name/value pairs
+        Map<String, Object> map = new HashMap<>();
+        map.put("getIdLong", id);
+        map.put("getId", Long.toString(id));
+        for(int i = 0; i < answers.length; i += 2){
+            map.put((String) answers[i], answers[i + 1]);
+        }
+        return map;
+    }
+    private static long userId(int index){
+        return Long.parseLong(SyntheticData.userId(index));
+    }
+    private long number(String option){
+        return Long.parseLong(options.get(option));
+    }
+    private static int port(String url){
+        return URI.create(url).getPort();
+    }
+    private static void copyCorpus(Path from, Path to) throws IOException{
+        Files.createDirectories(to);
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(from, "*.txt")){
+            for(Path file : files){
+                Files.copy(file, to.resolve(file.getFileName()));
+            }
+        }
+    }
+    private int report(double elapsed, long drainNanos){ // returns the exit code
+        long maxP99 = number("maxP99");
+        boolean failed = false;
+        System.out.printf("%nRecorded %.1f s, backlog drained %d ms after the last event, %d handler errors, %d failed rest callbacks.%n%n", elapsed, drainNanos/1000000, handlerErrors.sum(), Stubs.callbackErrors());
+        System.out.printf("%-16s %9s %9s %10s %10s %10s%n", "event", "count", "per s", "p50 [ms]", "p99 [ms]", "max [ms]");
+        for(String kind : EVENTS){
+            Latencies latency = latencies.get(kind);
+            if(latency == null){
+                continue;
+            }
+            long[] sorted = latency.sorted();
+            System.out.printf(Locale.US, "%-16s %9d %9.1f %10.2f %10.2f %10.2f%n", kind, sorted.length, sorted.length/elapsed, percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 1));
+            if(maxP99 > 0 && percentile(sorted, 0.99) > maxP99){
+                failed = true;
+            }
+        }
+        System.out.printf("%n%-16s %9s %9s %10s %10s %10s %10s%n", "command", "issued", "answered", "ack p50", "ack p99", "answer p50", "answer p99");
+        for(String command : new TreeSet<>(Arrays.asList(mix))){
+            LongAdder issued = counts.get(command + " issued");
+            if(issued == null){
+                continue;
+            }
+            LongAdder answered = counts.get(command + " answered");
+            long[] ack = latencies.getOrDefault(command + " ack", new Latencies()).sorted();
+            long[] answer = latencies.getOrDefault(command + " answer", new Latencies()).sorted();
+            System.out.printf(Locale.US, "%-16s %9d %9d %10.2f %10.2f %10.2f %10.2f%n", command, issued.sum(), (answered == null ? 0 : answered.sum()), percentile(ack, 0.5), percentile(ack, 0.99),
+                percentile(answer, 0.5), percentile(answer, 0.99));
+        }
+        System.out.printf("%nRest actions queued%n");
+        Stubs.calls().forEach((route, count) -> System.out.printf(Locale.US, "%-40s %9d %9.1f/s%n", route, count, count/elapsed));
+        if(failed){
+            System.out.printf("%nFAILED: an event type has a p99 above %d ms.%n", maxP99);
+        }
+        return (failed || handlerErrors.sum() > 0 ? 1 : 0);
+    }
+    private static double percentile(long[] sorted, double quantile){ // [ms]
+        if(sorted.length == 0){
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile*sorted.length) - 1; // nearest rank
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))]/1e6;
+    }
+    private static Map<String, Long> allocated(){ // bytes allocated so far per thread, by thread id
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Map<String, Long> allocated = new HashMap<>();
+        for(Thread thread : Thread.getAllStackTraces().keySet()){
+            long bytes = threads.getThreadAllocatedBytes(thread.getId());
+            if(bytes >= 0){
+                allocated.put(thread.getId() + " " + thread.getName(), bytes);
+            }
+        }
+        return allocated;
+    }
+    private void allocation(Map<String, Long> before, Map<String, Long> after, double elapsed){
+        // per thread group, threads that ended during the run are missing; the stub threads also run the bot's rest callbacks
+        Map<String, Long> groups = new TreeMap<>();
+        long bot = 0;
+        for(Map.Entry<String, Long> entry : after.entrySet()){
+            long bytes = entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+            String group = entry.getKey().substring(entry.getKey().indexOf(' ') + 1).replaceAll("-?\\d+", "");
+            groups.merge(group, bytes, Long::sum);
+            if(!HARNESS_THREADS.contains(group)){
+                bot += bytes;
+            }
+        }
+        long events = 0;
+        for(String kind : EVENTS){
+            Latencies latency = latencies.get(kind);
+            events += (latency == null ? 0 : latency.sorted().length);
+        }
+        System.out.printf(Locale.US, "Allocation: %.1f MB/s by the bot and the stub rest callbacks, %.1f KB per event.%n", bot/elapsed/1048576, (events == 0 ? 0 : bot/1024.0/events));
+        groups.forEach((group, bytes) -> {
+            if(bytes >= 1048576){
+                System.out.printf(Locale.US, "  %-32s %9.1f MB/s%n", group, bytes/elapsed/1048576);
+            }
+        });
+    }
+    private static long gcCount(){
+        long count = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+    private static long gcMillis(){
+        long millis = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()){
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+    static final class Latencies{ // [ns] every sample of one kind, sorted once for the report
+        private long[] samples = new long[1024];
+        private int count = 0;
+        synchronized void record(long nanos){
+            if(count == samples.length){
+                samples = Arrays.copyOf(samples, count*2);
+            }
+            samples[count++] = nanos;
+        }
+        synchronized long[] sorted(){
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
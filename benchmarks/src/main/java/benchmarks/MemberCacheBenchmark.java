@@ -0,0 +1,134 @@
+package benchmarks;
+
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.internal.JDAImpl;
+import net.dv8tion.jda.internal.entities.GuildImpl;
+import net.dv8tion.jda.internal.entities.MemberImpl;
+import net.dv8tion.jda.internal.entities.RoleImpl;
+import net.dv8tion.jda.internal.entities.UserImpl;
+import net.dv8tion.jda.internal.utils.UnlockHook;
+import net.dv8tion.jda.internal.utils.cache.AbstractCacheView;
+import net.dv8tion.jda.internal.utils.config.AuthorizationConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// member cache: MemberCachePolicy.ALL against the lean policy of MemberCache, on guilds built from jda's own entity classes
+// main() prints the heap each policy keeps, the jmh benchmark measures what the policy costs on a burst of joins
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbot.data=target/bench-data/members")
+public class MemberCacheBenchmark{
+    static final int UNVERIFIED_EVERY = 50; // every 50th member still waits for the verification role
+    @Param({"all", "lean"})
+    public String policy;
+    @Param({"10000"})
+    public int members; // joins per operation
+    private GuildImpl guild;
+    private MemberImpl[] joins;
+    private MemberCachePolicy cachePolicy;
+    @Setup(Level.Trial)
+    public void setup() throws Throwable{
+        SyntheticData.generate(Paths.get(BotHandles.DATA), 1, 0);
+        JDAImpl jda = new JDAImpl(new AuthorizationConfig("benchmark"));
+        guild = guild(jda, 0);
+        joins = new MemberImpl[members];
+        for(int i = 0; i < members; i++){
+            joins[i] = member(jda, guild, i);
+        }
+        cachePolicy = policy(policy);
+    }
+    @Benchmark
+    public int joinBurst(){ // what jda does for every member it receives: ask the policy, cache the member if it agrees
+        int cached = 0;
+        for(MemberImpl member : joins){
+            if(cachePolicy.cacheMember(member)){
+                put(guild.getMembersView(), member.getIdLong(), member);
+                cached++;
+            }
+        }
+        return cached;
+    }
+    public static void main(String[] args) throws Throwable{ // usage: MemberCacheBenchmark <guilds> <members per guild>, run with -Dbot.data=<dir>
+        int guilds = (args.length > 0 ? Integer.parseInt(args[0]) : 100);
+        int perGuild = (args.length > 1 ? Integer.parseInt(args[1]) : 5000);
+        SyntheticData.generate(Paths.get(BotHandles.DATA), guilds, 0);
+        for(String name : new String[]{"lean", "all"}){ // lean first, the collector keeps releasing the large run for a while after it
+            measure(name, guilds, perGuild);
+        }
+    }
+    static void measure(String name, int guilds, int perGuild) throws Throwable{ // a method per policy, so nothing of the previous run stays reachable from the stack
+        MemberCachePolicy cachePolicy = policy(name);
+        JDAImpl jda = new JDAImpl(new AuthorizationConfig("benchmark"));
+        List<GuildImpl> kept = new ArrayList<>();
+        for(int i = 0; i < guilds; i++){
+            kept.add(guild(jda, i));
+        }
+        long before = usedHeap();
+        long cached = 0;
+        for(GuildImpl guild : kept){
+            for(int i = 0; i < perGuild; i++){
+                MemberImpl member = member(jda, guild, i);
+                if(cachePolicy.cacheMember(member)){ // users are cached together with their members, as in EntityBuilder
+                    put(guild.getMembersView(), member.getIdLong(), member);
+                    put(jda.getUsersView(), member.getIdLong(), member.getUser());
+                    cached++;
+                }
+            }
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%-4s %9d members cached, %8.1f MB retained, %6d bytes per member, %8.1f KB per guild%n",
+                name, cached, retained/1048576.0, (cached == 0 ? 0 : retained/cached), retained/1024.0/guilds);
+        if(kept.size() != guilds || jda.getGuildsView().size() != guilds){ // keeps everything reachable until the measurement is done
+            throw new IllegalStateException();
+        }
+    }
+    static MemberCachePolicy policy(String name) throws Throwable{
+        return (name.equals("all") ? MemberCachePolicy.ALL : (MemberCachePolicy) BotHandles.MEMBER_CACHE_LEAN.invokeExact());
+    }
+    static GuildImpl guild(JDAImpl jda, int index){
+        GuildImpl guild = new GuildImpl(jda, Long.parseLong(SyntheticData.guildId(index)));
+        RoleImpl role = new RoleImpl(SyntheticData.verifyRoleId(index), guild).setName("verified");
+        put(guild.getRolesView(), role.getIdLong(), role);
+        put(jda.getGuildsView(), guild.getIdLong(), guild);
+        return guild;
+    }
+    static MemberImpl member(JDAImpl jda, GuildImpl guild, int index){ // a member with the fields discord always sends
+        UserImpl user = new UserImpl(Long.parseLong(SyntheticData.userId(index)), jda).setName("user" + index).setDiscriminator("0000").setAvatarId(Long.toHexString(index*31L));
+        MemberImpl member = new MemberImpl(guild, user).setJoinDate(System.currentTimeMillis());
+        if(index % UNVERIFIED_EVERY != 0){
+            member.getRoleSet().add(guild.getRoleById(SyntheticData.verifyRoleId(SyntheticData.guildIndex(guild.getIdLong()))));
+        }
+        return member;
+    }
+    @SuppressWarnings("try") // the hook only releases the lock, its body never uses it
+    static <T> void put(AbstractCacheView<T> view, long id, T value){ // jda takes the same lock for every entity it caches
+        try(UnlockHook hook = view.writeLock()){
+            view.getMap().put(id, value);
+        }
+    }
+    static long usedHeap(){
+        for(int i = 0; i < 3; i++){
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
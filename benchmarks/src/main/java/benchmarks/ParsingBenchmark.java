@@ -0,0 +1,57 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// pure string parsing behind /timeout, /ban and /roll, /height and /convert are in ConversionBenchmark
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark{
+    static final String[] DURATIONS = {"30s", "15m", "1.5h", "7d", "12x", "m"};
+    static final String[] NUMBERS = {"180", "172,5", "1.85", "65,25"};
+    static final String[] DICE = {"1d6", "2d20kh1", "4d6kh3+1d8!", "10d10+5d4-2d6", "100000d6"};
+    private int index = 0;
+    private Object[] compiled;
+    @Setup(Level.Trial)
+    public void setup() throws Throwable{
+        compiled = new Object[DICE.length];
+        for(int i = 0; i < DICE.length; i++){
+            compiled[i] = (Object) BotHandles.DICE_COMPILE.invokeExact(DICE[i]);
+        }
+    }
+    private int next(int length){
+        index = (index + 1 == Integer.MAX_VALUE ? 0 : index + 1);
+        return index % length;
+    }
+    @Benchmark
+    public int processDuration() throws Throwable{
+        return (int) BotHandles.PROCESS_DURATION.invokeExact(DURATIONS[next(DURATIONS.length)]);
+    }
+    @Benchmark
+    public double parseCommaDouble() throws Throwable{
+        return (double) BotHandles.PARSE_COMMA_DOUBLE.invokeExact(NUMBERS[next(NUMBERS.length)]);
+    }
+    @Benchmark
+    public String rollCompileAndRoll() throws Throwable{ // what /roll does per call, the compile cache is warm after the first iteration
+        return (String) BotHandles.DICE_ROLL.invokeExact((Object) BotHandles.DICE_COMPILE.invokeExact(DICE[next(DICE.length)]));
+    }
+    @Benchmark
+    public String rollPrecompiled() throws Throwable{
+        return (String) BotHandles.DICE_ROLL.invokeExact(compiled[next(compiled.length)]);
+    }
+}
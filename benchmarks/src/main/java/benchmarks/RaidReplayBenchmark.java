@@ -0,0 +1,150 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// RaidDetector replayed against synthetic join storms
+// main() replays recorded-style scenarios and checks the verdicts, the jmh benchmark measures a join under contention
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RaidReplayBenchmark{
+    static final long START = 1700000000000L; // [epoch ms] replays run on their own clock
+    static final long HOUR = 3600000L;
+    static final long DAY = 24*HOUR;
+    static final int NORMAL = 0; // verdicts of RaidDetector.join
+    static final int RAID_STARTED = 1;
+    static final int RAID = 2;
+    private Object detector; // RaidDetector
+    private final AtomicInteger clock = new AtomicInteger();
+    record Join(long time, long accountCreated){}
+    record Scenario(String name, List<Join> joins, int raids){} // raids the detector has to start
+    @Setup(Level.Iteration)
+    public void setup() throws Throwable{
+        detector = (Object) BotHandles.RAID_DETECTOR_NEW.invokeExact();
+    }
+    @Benchmark
+    @Threads(4)
+    public int stormJoin() throws Throwable{ // four shards' worth of joins into one guild, 50 per second of simulated time
+        long now = START + clock.getAndIncrement()*20L;
+        return (int) BotHandles.RAID_DETECTOR_JOIN.invokeExact(detector, now, now - HOUR/2);
+    }
+    public static void main(String[] args) throws Throwable{ // exits with 1 if a scenario gets the wrong verdict
+        Random random = new Random(SyntheticData.SEED);
+        List<Scenario> scenarios = List.of(
+                new Scenario("steady, a join every 30 s for 24 h", steady(random, 30000, 24*HOUR), 0),
+                new Scenario("busy, 6 joins a minute for 6 h", steady(random, 10000, 6*HOUR), 0),
+                new Scenario("storm, 300 fresh accounts in 30 s", storm(random, 300, 30000), 1),
+                new Scenario("drip, a day-old account every 6 s", drip(random, 6000, 20*60000L), 1),
+                new Scenario("two storms 20 min apart", twoStorms(random), 2));
+        boolean passed = true;
+        System.out.printf("%-40s %7s %7s %12s %9s %9s%n", "scenario", "joins", "raids", "detected at", "welcomed", "verdict");
+        for(Scenario scenario : scenarios){
+            passed &= replay(scenario);
+        }
+        passed &= concurrentStorm(8, 2000);
+        System.exit(passed ? 0 : 1);
+    }
+    static boolean replay(Scenario scenario) throws Throwable{
+        Object replayed = (Object) BotHandles.RAID_DETECTOR_NEW.invokeExact();
+        int raids = 0;
+        int welcomed = 0;
+        int detectedAt = -1;
+        for(int i = 0; i < scenario.joins().size(); i++){
+            Join join = scenario.joins().get(i);
+            int verdict = (int) BotHandles.RAID_DETECTOR_JOIN.invokeExact(replayed, join.time(), join.accountCreated());
+            if(verdict == RAID_STARTED){
+                raids++;
+                detectedAt = (detectedAt < 0 ? i + 1 : detectedAt);
+            }
+            welcomed += (verdict == NORMAL ? 1 : 0);
+        }
+        boolean ok = (raids == scenario.raids());
+        System.out.printf("%-40s %7d %7d %12s %9d %9s%n", scenario.name(), scenario.joins().size(), raids, (detectedAt < 0 ? "-" : "join " + detectedAt), welcomed, (ok ? "ok" : "WRONG"));
+        return ok;
+    }
+    static boolean concurrentStorm(int threads, int joinsPerThread) throws Throwable{ // the raid has to start exactly once however the joins interleave
+        Object replayed = (Object) BotHandles.RAID_DETECTOR_NEW.invokeExact();
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger clock = new AtomicInteger();
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for(int t = 0; t < threads; t++){
+            Thread worker = new Thread(() -> {
+                try{
+                    go.await();
+                    for(int i = 0; i < joinsPerThread; i++){
+                        long now = START + clock.getAndIncrement()/10;
+                        if((int) BotHandles.RAID_DETECTOR_JOIN.invokeExact(replayed, now, now - HOUR) == RAID_STARTED){
+                            started.incrementAndGet();
+                        }
+                    }
+                }catch(Throwable e){
+                    throw new IllegalStateException(e);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        go.countDown();
+        for(Thread worker : workers){
+            worker.join();
+        }
+        boolean ok = started.get() == 1;
+        System.out.printf("%-40s %7d %7d %12s %9s %9s%n", threads + " threads racing one storm", threads*joinsPerThread, started.get(), "-", "-", (ok ? "ok" : "WRONG"));
+        return ok;
+    }
+    static List<Join> steady(Random random, long meanGap, long duration){ // poisson arrivals, accounts of any age, mostly old ones
+        // the default thresholds suit servers with up to about 6 joins a minute, bigger ones raise RAID_JOINS
+        List<Join> joins = new ArrayList<>();
+        for(long time = START; time < START + duration; time += 1 + (long) (-Math.log(1 - random.nextDouble())*meanGap)){
+            joins.add(new Join(time, time - (random.nextInt(20) == 0 ? random.nextInt(7)*DAY + HOUR : 30*DAY + random.nextInt(1000)*DAY)));
+        }
+        return joins;
+    }
+    static List<Join> storm(Random random, int count, long duration){ // bot accounts created within the last hour
+        List<Join> joins = steady(random, 30000, HOUR);
+        long start = START + HOUR;
+        for(int i = 0; i < count; i++){
+            long time = start + duration*i/count;
+            joins.add(new Join(time, time - random.nextInt((int) (HOUR/2))));
+        }
+        return joins;
+    }
+    static List<Join> drip(Random random, long gap, long duration){ // slow enough for the total, not for the account ages
+        List<Join> joins = new ArrayList<>();
+        for(long time = START; time < START + duration; time += gap){
+            joins.add(new Join(time, time - 20*HOUR - random.nextInt((int) HOUR)));
+        }
+        return joins;
+    }
+    static List<Join> twoStorms(Random random){
+        List<Join> joins = storm(random, 100, 20000);
+        long second = joins.get(joins.size() - 1).time() + 20*60000L;
+        for(int i = 0; i < 100; i++){
+            long time = second + 200L*i;
+            joins.add(new Join(time, time - random.nextInt((int) HOUR)));
+        }
+        return joins;
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+// getSpecialSetting/getSpecialChannel lookups, the cached snapshot against the per-call file read they replaced
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dbot.data=target/bench-data/settings")
+public class SettingsBenchmark{
+    @Param({"10", "1000"})
+    public int guilds;
+    private List<String> ids;
+    @State(Scope.Thread)
+    public static class Cursor{
+        int index = 0;
+        String next(List<String> ids){
+            index = (index + 1) % ids.size();
+            return ids.get(index);
+        }
+    }
+    @Setup(Level.Trial)
+    public void setup(){
+        ids = SyntheticData.generate(Paths.get(BotHandles.DATA), guilds, 0);
+    }
+    @Benchmark
+    public String setting(Cursor cursor) throws Throwable{
+        return (String) BotHandles.SETTINGS_SETTING.invokeExact((Object) BotHandles.SETTINGS_OF.invokeExact(cursor.next(ids)), 3);
+    }
+    @Benchmark
+    public String channel(Cursor cursor) throws Throwable{
+        return (String) BotHandles.SETTINGS_CHANNEL.invokeExact((Object) BotHandles.SETTINGS_OF.invokeExact(cursor.next(ids)), 2);
+    }
+    @Benchmark
+    public String legacySetting(Cursor cursor){ // getSpecialSetting as of 0.4.6d
+        try{
+            return new Scanner(Paths.get(BotHandles.DATA + "/banSettings/" + cursor.next(ids) + ".csv")).nextLine().split(",")[3];
+        }catch(Exception e){
+            return "-1";
+        }
+    }
+    @Benchmark
+    public String legacyChannel(Cursor cursor){ // getSpecialChannel as of 0.4.6d, without the jda lookup
+        try{
+            return new Scanner(Paths.get(BotHandles.DATA + "/channels/" + cursor.next(ids) + ".csv")).nextLine().split(",")[2];
+        }catch(Exception e){
+            return null;
+        }
+    }
+}
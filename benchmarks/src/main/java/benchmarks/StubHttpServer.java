@@ -0,0 +1,82 @@
+package benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// local stand-ins for deepl and wikipedia on two ports, so each counts as its own host for the bot's per-host limits
+// deepl answers every text of a request with it upper-cased behind the target language, wikipedia redirects Special:Random to a numbered article
+final class StubHttpServer{
+    private final HttpServer deepl;
+    private final HttpServer wikipedia;
+    private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(2, Stubs.daemon("stub-http"));
+    private final long latency; // [ms] before every response
+    final LongAdder deeplRequests = new LongAdder();
+    final LongAdder deeplTexts = new LongAdder();
+    final LongAdder wikipediaRequests = new LongAdder();
+    StubHttpServer(int deeplPort, int wikipediaPort, long latency) throws IOException{
+        this.latency = latency;
+        deepl = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), deeplPort), 256);
+        deepl.createContext("/v2/translate", this::translate);
+        wikipedia = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), wikipediaPort), 256);
+        wikipedia.createContext("/", this::random);
+        deepl.setExecutor(Executors.newFixedThreadPool(4, Stubs.daemon("stub-deepl")));
+        wikipedia.setExecutor(Executors.newFixedThreadPool(4, Stubs.daemon("stub-wikipedia")));
+        deepl.start();
+        wikipedia.start();
+    }
+    void stop(){
+        deepl.stop(0);
+        wikipedia.stop(0);
+        responder.shutdownNow();
+    }
+    private void translate(HttpExchange exchange) throws IOException{ // form with repeated text=, as DeeplBatcher sends it
+        String form = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        StringBuilder body = new StringBuilder("{\"translations\":[");
+        int texts = 0;
+        String target = "";
+        for(String field : form.split("&")){
+            if(field.startsWith("target_lang=")){ // sent before the texts
+                target = field.substring(12);
+            }
+            if(field.startsWith("text=")){
+                String text = target + ": " + URLDecoder.decode(field.substring(5), StandardCharsets.UTF_8).toUpperCase();
+                body.append(texts++ == 0 ? "" : ",").append("{\"detected_source_language\":\"EN\",\"text\":\"").append(text.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"}");
+            }
+        }
+        deeplRequests.increment();
+        deeplTexts.add(texts);
+        respond(exchange, 200, body.append("]}").toString(), null);
+    }
+    private void random(HttpExchange exchange) throws IOException{ // /<language>/wiki/Special:Random
+        String language = exchange.getRequestURI().getPath().split("/")[1];
+        wikipediaRequests.increment();
+        respond(exchange, 302, "", String.format("https://%s.wikipedia.org/wiki/Article_%d", language, wikipediaRequests.sum()));
+    }
+    private void respond(HttpExchange exchange, int status, String body, String location){ // later, without holding a server thread
+        responder.schedule(() -> {
+            try(exchange){
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                if(location != null){
+                    exchange.getResponseHeaders().add("Location", location);
+                }
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, (bytes.length == 0 ? -1 : bytes.length));
+                if(bytes.length > 0){
+                    exchange.getResponseBody().write(bytes);
+                }
+            }catch(IOException e){
+                // the bot gave up on the request
+            }
+        }, latency, TimeUnit.MILLISECONDS);
+    }
+}
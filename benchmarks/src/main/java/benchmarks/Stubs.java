@@ -0,0 +1,187 @@
+package benchmarks;
+
+import net.dv8tion.jda.api.requests.RestAction;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// proxy stand-ins for the jda entities and rest actions the bot touches, nothing leaves the process
+// entities answer by method name, rest actions complete after a fixed latency on a pool of their own, like jda's callback pool
+final class Stubs{
+    static volatile long restLatency = 20; // [ms] from queue() to the success callback
+    static final ScheduledExecutorService callbacks = Executors.newScheduledThreadPool(4, daemon("stub-rest"));
+    private static final ConcurrentHashMap<String, LongAdder> calls = new ConcurrentHashMap<>(); // rest calls per route, e.g. TextChannel.sendMessage
+    private static final LongAdder callbackErrors = new LongAdder(); // success callbacks of the bot that threw, usually a stub answer missing
+    interface Answer{
+        Object answer(Object[] args) throws Throwable;
+    }
+    interface RestListener{ // told about every queued action of one entity, e.g. the replies of an interaction
+        void queued(String route, boolean content);
+    }
+    record Completes(Supplier<?> value){} // answer of a method returning a rest action, the value its callbacks receive
+    private Stubs(){}
+    static <T> T entity(Class<T> type, Map<String, Object> answers){
+        return type.cast(entity(new Class<?>[]{type}, answers, null));
+    }
+    static Object entity(Class<?>[] types, Map<String, Object> answers, RestListener listener){
+        return Proxy.newProxyInstance(Stubs.class.getClassLoader(), types, new EntityHandler(types[0].getSimpleName(), answers, listener));
+    }
+    static Map<String, Long> calls(){
+        Map<String, Long> snapshot = new TreeMap<>();
+        calls.forEach((route, count) -> snapshot.put(route, count.sum()));
+        return snapshot;
+    }
+    static void resetCalls(){
+        calls.clear();
+    }
+    static long callbackErrors(){
+        return callbackErrors.sum();
+    }
+    private record EntityHandler(String name, Map<String, Object> answers, RestListener listener) implements InvocationHandler{
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable{
+            if(method.getDeclaringClass() == Object.class){
+                return identity(proxy, method, args, name);
+            }
+            Object answer = answers.get(method.getName());
+            if(answer instanceof Answer function){
+                answer = function.answer(args == null ? new Object[0] : args);
+            }
+            Class<?> type = method.getReturnType();
+            if(RestAction.class.isAssignableFrom(type)){ // before the default methods, which would build real requests
+                Supplier<?> value = (answer instanceof Completes completes ? completes.value() : () -> null);
+                return rest(type, name + "." + method.getName(), value, listener);
+            }
+            if(answer != null){
+                return answer;
+            }
+            if(method.isDefault()){
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            return empty(type, proxy);
+        }
+    }
+    static Object rest(Class<?> type, String route, Supplier<?> value, RestListener listener){
+        String action = route.substring(route.lastIndexOf('.') + 1);
+        boolean[] content = {action.startsWith("reply") || action.startsWith("send") || action.startsWith("edit")}; // deferReply() gets its body from builder methods
+        return Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            String name = method.getName();
+            switch(name){
+                case "queue":
+                    queued(route, content[0], listener);
+                    Consumer<Object> success = (args != null && args.length > 0 ? cast(args[0]) : null);
+                    callbacks.schedule(() -> {
+                        try{
+                            if(success != null){
+                                success.accept(value.get());
+                            }
+                        }catch(RuntimeException e){
+                            if(callbackErrors.sum() == 0){
+                                e.printStackTrace();
+                            }
+                            callbackErrors.increment();
+                        }
+                    }, restLatency, TimeUnit.MILLISECONDS);
+                    return null;
+                case "complete":
+                    queued(route, content[0], listener);
+                    return value.get();
+                case "submit":
+                    queued(route, content[0], listener);
+                    CompletableFuture<Object> future = new CompletableFuture<>();
+                    callbacks.schedule(() -> future.complete(value.get()), restLatency, TimeUnit.MILLISECONDS);
+                    return future;
+                default:
+            }
+            if(method.getDeclaringClass() == Object.class){
+                return identity(proxy, method, args, route);
+            }
+            if(name.contains("Content") || name.contains("Embed") || name.contains("File")){
+                content[0] = true;
+            }
+            if(method.getReturnType().isInstance(proxy)){ // builder methods: reason, setEphemeral, mentionRepliedUser...
+                return proxy;
+            }
+            if(method.isDefault()){
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            return empty(method.getReturnType(), proxy);
+        });
+    }
+    private static void queued(String route, boolean content, RestListener listener){
+        calls.computeIfAbsent(route, key -> new LongAdder()).increment();
+        if(listener != null){
+            listener.queued(route, content);
+        }
+    }
+    private static Object identity(Object proxy, Method method, Object[] args, String name){
+        return switch(method.getName()){
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> "stub " + name;
+        };
+    }
+    private static Object empty(Class<?> type, Object proxy){
+        if(type == void.class){
+            return null;
+        }
+        if(type == boolean.class){
+            return false;
+        }
+        if(type == int.class){
+            return 0;
+        }
+        if(type == long.class){
+            return 0L;
+        }
+        if(type == double.class){
+            return 0.0;
+        }
+        if(type == float.class){
+            return 0.0f;
+        }
+        if(type == String.class){
+            return "";
+        }
+        if(type == List.class){
+            return List.of();
+        }
+        if(type == Set.class){
+            return Set.of();
+        }
+        if(type == Map.class){
+            return Map.of();
+        }
+        if(type == Optional.class){
+            return Optional.empty();
+        }
+        return (type.isInstance(proxy) ? proxy : null);
+    }
+    @SuppressWarnings("unchecked")
+    private static Consumer<Object> cast(Object consumer){
+        return (Consumer<Object>) consumer;
+    }
+    static ThreadFactory daemon(String name){
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// deterministic data/ trees in the layout the bot expects, sized by guild count and bans per guild
+public final class SyntheticData{
+    static final long SEED = 20230601L;
+    static final long FIRST_GUILD = 100000000000000000L; // snowflake-sized ids
+    static final long FIRST_USER = 300000000000000000L;
+    static final String DEFAULT_ROOT = "target/synthetic-data"; // never the bot's own data directory
+    static final String MARKER = ".synthetic"; // written into every generated tree, only such trees are wiped
+    private SyntheticData(){}
+    public static void main(String[] args){ // usage: benchmarks.SyntheticData [dir] [guilds] [bans per guild]
+        Path root = Paths.get(args.length > 0 ? args[0] : DEFAULT_ROOT);
+        int guilds = (args.length > 1 ? Integer.parseInt(args[1]) : 100);
+        int bans = (args.length > 2 ? Integer.parseInt(args[2]) : 1000);
+        generate(root, guilds, bans);
+        System.out.printf("Generated %d guilds with %d bans each in %s.%n", guilds, bans, root.toAbsolutePath());
+    }
+    public static List<String> generate(Path root, int guilds, int bansPerGuild){ // returns the guild ids, wipes the directory first if an earlier run generated it
+        Random random = new Random(SEED);
+        List<String> ids = new ArrayList<>();
+        try{
+            delete(root);
+            Files.createDirectories(root);
+            Files.writeString(root.resolve(MARKER), "generated by benchmarks.SyntheticData" + System.lineSeparator(), StandardCharsets.UTF_8);
+            for(String dir : new String[]{"channels", "banSettings", "banList", "appeals", "logs"}){
+                Files.createDirectories(root.resolve(dir));
+            }
+            Files.writeString(root.resolve("Activities.txt"), "benchmarking" + System.lineSeparator(), StandardCharsets.UTF_8);
+            for(int i = 0; i < guilds; i++){
+                String id = guildId(i);
+                ids.add(id);
+                long channel = FIRST_GUILD + i*10L;
+                Files.writeString(root.resolve("channels").resolve(id + ".csv"), String.format("%d,%d,%d,%d,%d,%d%n", channel+1, channel+2, channel+3, channel+4, channel+5, channel+7), StandardCharsets.UTF_8);
+                Files.writeString(root.resolve("banSettings").resolve(id + ".csv"), String.format("%d,1,0,600,%d%n", 86400*(1+random.nextInt(30)), verifyRoleId(i)), StandardCharsets.UTF_8);
+                Files.writeString(root.resolve("banList").resolve(id + ".csv"), banList(random, bansPerGuild), StandardCharsets.UTF_8);
+                Files.writeString(root.resolve("appeals").resolve(id + ".csv"), "", StandardCharsets.UTF_8);
+            }
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return ids;
+    }
+    public static String guildId(int index){ // a millisecond apart in snowflake time, so the guilds spread over shards like real ones
+        return Long.toString(FIRST_GUILD + ((long) index << 22));
+    }
+    public static int guildIndex(long guildId){
+        return (int) ((guildId - FIRST_GUILD) >>> 22);
+    }
+    public static long channelId(int index, int channel){ // special channel of a synthetic guild, 0 - main chat ... 5 - auto-translate
+        return FIRST_GUILD + index*10L + (channel == 5 ? 7 : channel + 1);
+    }
+    public static long verifyRoleId(int index){ // verification is enabled in every synthetic guild
+        return FIRST_GUILD + index*10L + 6;
+    }
+    public static String userId(int index){
+        return Long.toString(FIRST_USER + index);
+    }
+    static String banList(Random random, int bans){
+        StringBuilder builder = new StringBuilder(bans*48);
+        for(int i = 0; i < bans; i++){
+            builder.append(userId(i)).append(',').append("rule ").append(1+random.nextInt(12)).append(", repeated").append(',').append(random.nextInt(Integer.MAX_VALUE)).append('\n');
+        }
+        return builder.toString();
+    }
+    static void delete(Path root) throws IOException{
+        if(!Files.exists(root)){
+            return;
+        }
+        if(!Files.exists(root.resolve(MARKER))){ // e.g. the live data/ tree when bot.data was not set
+            try(Stream<Path> entries = Files.list(root)){
+                if(entries.findAny().isPresent()){
+                    throw new IOException(String.format("Refusing to wipe %s, it was not generated by SyntheticData. Delete it by hand or pick another directory.", root.toAbsolutePath()));
+                }
+            }
+        }
+        try(Stream<Path> paths = Files.walk(root)){
+            for(Path i : paths.sorted(Comparator.reverseOrder()).toList()){
+                Files.delete(i);
+            }
+        }
+    }
+}
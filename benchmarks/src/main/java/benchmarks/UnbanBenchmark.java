@@ -0,0 +1,83 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+// ban-list update done by /unban: a journaled remove against the full rewrite it replaced
+// each operation unbans one user and bans them again, so the list keeps its size
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dbot.data=target/bench-data/unban")
+public class UnbanBenchmark{
+    @Param({"100", "10000", "100000"})
+    public int bans;
+    private String guildId;
+    private Path legacyList;
+    private Object table; // JournaledTable<Storage.Ban>
+    private int next = 0;
+    @Setup(Level.Trial)
+    public void setup() throws Throwable{
+        guildId = SyntheticData.generate(Paths.get(BotHandles.DATA), 2, bans).get(0);
+        legacyList = Paths.get(BotHandles.DATA, "banList", SyntheticData.guildId(1) + ".csv"); // a separate guild, untouched by Storage
+        table = (Object) BotHandles.STORAGE_BANS.invokeExact(guildId); // converts the csv, as on the first start after an update
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable{
+        BotHandles.TABLE_CLOSE.invokeExact(table);
+    }
+    @Benchmark
+    public Object journaled() throws Throwable{
+        Object removed = (Object) BotHandles.TABLE_REMOVE.invokeExact(table, SyntheticData.userId(next = (next + 1) % bans));
+        BotHandles.TABLE_PUT.invokeExact(table, removed);
+        BotHandles.TABLE_FLUSH.invokeExact(table); // the storage flusher batches this every 200 ms, counting it per call is the worst case
+        return removed;
+    }
+    @Benchmark
+    public int legacyRewrite() throws IOException{ // /unban as of 0.4.6d
+        String userId = SyntheticData.userId(next = (next + 1) % bans);
+        Scanner scanner = new Scanner(legacyList);
+        ArrayList<String> lines = new ArrayList<>();
+        String removed = null;
+        while(scanner.hasNextLine()){
+            String line = scanner.nextLine();
+            if(!(line.contains(userId))){
+                lines.add(line);
+            }else{
+                removed = line;
+            }
+        }
+        scanner.close();
+        PrintWriter writer = new PrintWriter(legacyList.toFile());
+        for(String i : lines){
+            writer.println(i);
+        }
+        writer.close();
+        try(PrintWriter appender = new PrintWriter(new FileWriter(legacyList.toFile(), true))){ // the ban that follows, as /ban appended it
+            appender.println(removed);
+        }
+        return lines.size();
+    }
+}